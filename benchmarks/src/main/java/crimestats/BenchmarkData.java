@@ -0,0 +1,46 @@
+package crimestats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * file:    BenchmarkData.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: BenchmarkData provides synthetic crime stats files for the benchmarks, written by
+ * CrimeDataGenerator with a single region and a fixed seed. Files are kept in the temp directory and
+ * reused by later runs.
+ */
+public class BenchmarkData {
+
+    /**
+     * This method returns a synthetic file with the given number of data rows, writing it if needed
+     * @param rows number of data rows
+     * @return Path of the file
+     * @throws IOException if the file cannot be written
+     */
+    static Path file(int rows) throws IOException {
+        Path file = Paths.get(System.getProperty("java.io.tmpdir"), "crimestats-bench-" + rows + ".csv");
+        if (!Files.exists(file)) {
+            Path partial = Paths.get(file + ".tmp");
+            new CrimeDataGenerator(1, rows).write(partial, rows, 1994);
+            Files.move(partial, file);
+        }
+        return file;
+    }
+
+    /**
+     * This method returns the data rows of a synthetic file as Strings
+     * @param rows number of rows
+     * @return array of csv lines without the header
+     * @throws IOException if the file cannot be written or read
+     */
+    static String[] lines(int rows) throws IOException {
+        List<String> lines = Files.readAllLines(file(rows), StandardCharsets.US_ASCII);
+        return lines.subList(1, lines.size()).toArray(new String[0]);
+    }
+} // end class
@@ -0,0 +1,79 @@
+package crimestats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * file:    IngestBenchmark.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: IngestBenchmark measures loading a whole file with each IngestMode, using the same readers
+ * CrimeStats.processFile calls but without its console messages. LAZY only indexes the rows when it
+ * loads, so loadAndFindMaxMurder compares the modes on a load followed by one query of one crime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class IngestBenchmark {
+
+    @Param({"20", "100000", "10000000"})
+    public int rows;
+
+    @Param({"READER", "MAPPED", "PARALLEL", "LAZY"})
+    public IngestMode mode;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = BenchmarkData.file(rows);
+    }
+
+    @Benchmark
+    public CrimeColumns load() throws IOException {
+        CrimeColumns columns = new CrimeColumns(rows);
+        switch (mode) {
+            case LAZY:
+                return new CrimeColumns(LazyCsvColumns.index(file));
+
+            case MAPPED:
+                MappedCsvReader.read(file, columns);
+                break;
+
+            case PARALLEL:
+                ParallelCsvReader.read(file, columns, ForkJoinPool.commonPool());
+                break;
+
+            default:
+                try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
+                    CrimeStats.readLines(reader, columns);
+                }
+                break;
+        }
+        return columns;
+    }
+
+    @Benchmark
+    public int loadAndFindMaxMurder() throws IOException {
+        return load().maxRow(CrimeColumn.MURDER_RATE);
+    }
+} // end class
@@ -0,0 +1,59 @@
+package crimestats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * file:    ParseBenchmark.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: ParseBenchmark measures parsing single csv rows, both through the USCrimeStats(String)
+ * constructor and with one CrimeCsvParser reused for a batch of rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    private static final int BATCH = 20;
+
+    private String[] lines;
+    private CrimeCsvParser parser;
+
+    @Setup
+    public void setup() throws IOException {
+        lines = BenchmarkData.lines(BATCH);
+        parser = new CrimeCsvParser();
+    }
+
+    @Benchmark
+    public void usCrimeStatsConstructor(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(new USCrimeStats(line));
+        }
+    }
+
+    @Benchmark
+    public CrimeColumns reusedParser() {
+        CrimeColumns columns = new CrimeColumns(BATCH);
+        for (int i = 0; i < lines.length; i++) {
+            parser.parse(lines[i], i + 2, columns);
+        }
+        return columns;
+    }
+} // end class
@@ -0,0 +1,146 @@
+package crimestats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * file:    QueryBenchmark.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: QueryBenchmark measures the menu queries on a loaded data set: the highest and lowest rate
+ * lookups, the rate summary they are answered from, the year index and range statistics, the top ten
+ * rows and percentiles of a crime, sorted exactly and estimated by a KllSketch, grouping by year, and
+ * the population change report of menu option A, both streamed by CrimeStats.writeChanges and built
+ * with the StringBuilder loop the menu used before. Each is measured with the columns in heap arrays,
+ * packed into EncodedColumns by ColumnStorage.COMPACT, in direct buffers by ColumnStorage.OFF_HEAP and
+ * in the mapped snapshot of ColumnStorage.FILE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class QueryBenchmark {
+
+    @Param({"20", "100000", "10000000"})
+    public int rows;
+
+    @Param({"HEAP", "COMPACT", "OFF_HEAP", "FILE"})
+    public ColumnStorage storage;
+
+    private CrimeStats crime;
+
+    @Setup
+    public void setup() throws IOException {
+        crime = new CrimeStats(BenchmarkData.file(rows).toString(), IngestMode.PARALLEL, false, storage);
+    }
+
+    @Benchmark
+    public USCrimeStats maxRate() {
+        return crime.getMaxRate(CrimeMetric.MURDER);
+    }
+
+    @Benchmark
+    public USCrimeStats minRate() {
+        return crime.getMinRate(CrimeMetric.VEHICLE_THEFT);
+    }
+
+    @Benchmark
+    public RateSummary summarizeRates() {
+        return crime.getColumns().summarizeRates();
+    }
+
+    @Benchmark
+    public int maxRowScan() {
+        return crime.getColumns().maxRow(CrimeColumn.MURDER_RATE);
+    }
+
+    @Benchmark
+    public YearIndex buildYearIndex() {
+        return new YearIndex(crime.getColumns());
+    }
+
+    @Benchmark
+    public RangeStats rangeStats() {
+        return crime.getYearIndex().rangeStats(1995, 2005);
+    }
+
+    @Benchmark
+    public int[] topTenRows() {
+        return crime.getColumns().topRows(CrimeColumn.MURDER_RATE, 10, true);
+    }
+
+    @Benchmark
+    public double[] sortRates() {
+        return crime.getColumns().sortedRates(CrimeColumn.MURDER_RATE);
+    }
+
+    @Benchmark
+    public double sketchPercentile() {
+        CrimeColumns columns = crime.getColumns();
+        KllSketch sketch = new KllSketch();
+        for (int i = 0; i < columns.size(); i++) {
+            sketch.update(columns.getRate(CrimeColumn.MURDER_RATE, i));
+        }
+        return sketch.quantile(0.95);
+    }
+
+    @Benchmark
+    public GroupedStats groupByYear() {
+        return crime.groupBy(GroupKey.YEAR);
+    }
+
+    @Benchmark
+    public void populationChange() throws IOException {
+        AsciiWriter out = new AsciiWriter(OutputStream.nullOutputStream());
+        crime.writeChanges(CrimeColumn.POPULATION, out);
+        out.flush();
+    }
+
+    /**
+     * the loop menu option A used before it called CrimeStats.writeChanges
+     */
+    @Benchmark
+    public StringBuilder populationChangeStringBuilder() {
+        int year1 = -1;
+        int pop1 = -1;
+        int year2;
+        int pop2;
+        USCrimeStats[] rows = crime.getCrimeArray();
+        int length = rows.length;
+        StringBuilder s = new StringBuilder("Consecutive year population changes\n");
+
+        for (int i = 1; i < length; i++) {
+            if (year1 < 0) {
+                year1 = rows[i].getYear();
+                pop1 = rows[i].getPopulation();
+            } else {
+                year2 = year1;
+                pop2 = pop1;
+                year1 = rows[i].getYear();
+                pop1 = rows[i].getPopulation();
+
+                double change = (((pop1 - pop2) / (double) pop2) * 100);
+                s.append("Between ").append(year2).append(" and ").append(year1).append(" there was a ")
+                        .append(String.format("%.4f", change))
+                        .append("% population change with a total increase of ").append(pop1 - pop2)
+                        .append("\n");
+            }
+        }
+        return s;
+    }
+} // end class
@@ -0,0 +1,337 @@
+package crimestats;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * file:    ColumnStorageCheck.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: ColumnStorageCheck encodes and stores columns of edge values and checks that every row reads
+ * back exactly as it was written. A mistake in the bit packing of an EncodedColumn or the chunks of
+ * OffHeapColumns does not fail, it answers queries with the wrong rows, so gradle check runs this
+ * before a build is accepted.
+ *
+ * EncodedColumn is checked with the lowest and highest int, columns of one value that pack into 0
+ * bits, columns that store differences across the full value kept every 64 rows, and rates with 1 to
+ * 15 decimals, -0.0 and NaN, which must either stay doubles or convert back to the same bits.
+ * OffHeapColumns.withRows is checked at 2^18 - 1, 2^18 and 2^18 + 1 rows, where the rows appended
+ * start just before, exactly at and just after the end of a chunk.
+ *
+ * usage: ColumnStorageCheck
+ */
+public class ColumnStorageCheck {
+    // class fields
+
+    private static final int CHUNK_ROWS = OffHeapColumns.CHUNK_ROWS;
+    private static final Random RANDOM = new Random(17);
+
+    private static int checked = 0;
+
+    /**
+     * Main method runs every check and exits with status 1 at the first row that reads back wrong
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        try {
+            checkInts();
+            checkRates();
+            checkOffHeap();
+        } catch (IllegalStateException e) {
+            System.err.println("ColumnStorageCheck failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("ColumnStorageCheck passed " + checked + " checks");
+    } // end main
+
+    /**
+     * This method checks whole number columns packed by frame of reference and by differences
+     */
+    private static void checkInts() {
+        checkInts("min and max", new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1, Integer.MAX_VALUE,
+                Integer.MIN_VALUE});
+        checkInts("single row", new int[] {Integer.MIN_VALUE});
+        checkInts("no rows", new int[0]);
+
+        for (int size : new int[] {1, 63, 64, 65, 128, 129, 1000}) {
+            int[] same = new int[size];
+            Arrays.fill(same, Integer.MAX_VALUE);
+            checkInts("equal values of " + size + " rows", same);
+            if (encodeInts(same).getBits() != 0) {
+                throw new IllegalStateException("equal values take " + encodeInts(same).getBits() + " bits");
+            }
+
+            // slowly growing values such as a population are stored as differences
+            int[] growing = new int[size];
+            growing[0] = Integer.MIN_VALUE + 5;
+            for (int i = 1; i < size; i++) {
+                growing[i] = growing[i - 1] + RANDOM.nextInt(4);
+            }
+            checkInts("growing values of " + size + " rows", growing);
+
+            // differences that reach from one end of int to the other
+            int[] swinging = new int[size];
+            for (int i = 0; i < size; i++) {
+                swinging[i] = i % 2 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            }
+            checkInts("swinging values of " + size + " rows", swinging);
+
+            int[] random = new int[size];
+            for (int i = 0; i < size; i++) {
+                random[i] = RANDOM.nextInt();
+            }
+            checkInts("random values of " + size + " rows", random);
+        }
+
+        int[] population = new int[1000];
+        population[0] = 260327021;
+        for (int i = 1; i < population.length; i++) {
+            population[i] = population[i - 1] + 200000 + RANDOM.nextInt(1000);
+        }
+        if (!encodeInts(population).isDelta()) {
+            throw new IllegalStateException("a growing population is not stored as differences");
+        }
+        checkInts("population", population);
+    } // end checkInts
+
+    /**
+     * This method checks one whole number column, reading every row alone, in runs that start and end
+     * anywhere, and by the row of the lowest and highest value
+     */
+    private static void checkInts(String name, int[] values) {
+        EncodedColumn column = encodeInts(values);
+        expect(column.size() == values.length, name, "size " + column.size());
+        for (int i = 0; i < values.length; i++) {
+            expect(column.getInt(i) == values[i], name, "row " + i + " reads " + column.getInt(i)
+                    + " not " + values[i]);
+        }
+        int[] decoded = column.toIntArray();
+        for (int i = 0; i < values.length; i++) {
+            expect(decoded[i] == values[i], name, "decoded row " + i);
+        }
+
+        for (int n = 0; n < 50 && values.length > 0; n++) {
+            int from = RANDOM.nextInt(values.length);
+            int count = RANDOM.nextInt(values.length - from) + 1;
+            int[] run = new int[count];
+            column.decodeInts(from, count, run);
+            for (int i = 0; i < count; i++) {
+                expect(run[i] == values[from + i], name, "row " + (from + i) + " of the run from " + from);
+            }
+            int to = from + count;
+            expect(column.extremeRow(from, to, true) == extremeRow(values, from, to, true), name,
+                    "highest row from " + from + " to " + to);
+            expect(column.extremeRow(from, to, false) == extremeRow(values, from, to, false), name,
+                    "lowest row from " + from + " to " + to);
+        }
+    } // end checkInts
+
+    /**
+     * This method checks that rates with up to 4 decimals are stored as whole numbers and convert back
+     * to the same double, and that any other rate keeps the column as doubles
+     */
+    private static void checkRates() {
+        for (int decimals = 1; decimals <= 15; decimals++) {
+            double[] rates = new double[200];
+            long scale = 1;
+            for (int d = 0; d < decimals; d++) {
+                scale *= 10;
+            }
+            for (int i = 0; i < rates.length; i++) {
+                // the last decimal is never 0, so the rate needs every decimal
+                long digits = (RANDOM.nextInt(9000) + 1) * scale + (RANDOM.nextInt(9) + 1);
+                rates[i] = Double.parseDouble(Long.toString(digits / scale) + "."
+                        + String.format("%0" + decimals + "d", digits % scale));
+            }
+            EncodedColumn column = checkRates(decimals + " decimals", rates);
+            if (decimals <= 4 && (column == null || column.getScale() != scale)) {
+                throw new IllegalStateException("rates with " + decimals + " decimals are not stored in 1/"
+                        + scale + " units");
+            }
+        }
+
+        checkRates("whole rates", new double[] {0.0, 1.0, 9000.0, 12.0});
+        checkRates("negative rates", new double[] {-1.25, -0.5, 3.75, -9000.0});
+        checkRates("equal rates", new double[] {713.6, 713.6, 713.6});
+        expect(checkRates("negative zero", new double[] {0.0, -0.0, 1.5}) == null, "negative zero",
+                "is stored as 0");
+        expect(checkRates("not a number", new double[] {1.5, Double.NaN}) == null, "not a number",
+                "is stored as a whole number");
+        expect(checkRates("infinity", new double[] {Double.POSITIVE_INFINITY}) == null, "infinity",
+                "is stored as a whole number");
+        checkRates("largest whole rate", new double[] {(double) (1L << 52), 0.5});
+        expect(checkRates("too large", new double[] {1e300, 1.0}) == null, "too large",
+                "is stored as a whole number");
+        checkRates("smallest rate", new double[] {Double.MIN_VALUE, 1.0});
+    } // end checkRates
+
+    /**
+     * This method checks one rate column and returns its encoding, null if it stays doubles
+     */
+    private static EncodedColumn checkRates(String name, double[] values) {
+        EncodedColumn column = EncodedColumn.encodeRates(values, values.length);
+        checked++;
+        if (column == null) {
+            return null;
+        }
+        double[] decoded = column.toRateArray();
+        for (int i = 0; i < values.length; i++) {
+            expect(sameDouble(column.getRate(i), values[i]), name, "row " + i + " reads " + column.getRate(i)
+                    + " not " + values[i]);
+            expect(sameDouble(decoded[i], values[i]), name, "decoded row " + i);
+        }
+        if (values.length > 1) {
+            double[] run = new double[values.length - 1];
+            column.decodeRates(1, run.length, run);
+            for (int i = 0; i < run.length; i++) {
+                expect(sameDouble(run[i], values[i + 1]), name, "row " + (i + 1) + " of the run from 1");
+            }
+        }
+        return column;
+    } // end checkRates
+
+    /**
+     * This method checks rows appended to off heap columns of 2^18 - 1, 2^18 and 2^18 + 1 rows, then
+     * appended to again from the same columns, which must not change the rows of the first result
+     */
+    private static void checkOffHeap() {
+        for (int size : new int[] {CHUNK_ROWS - 1, CHUNK_ROWS, CHUNK_ROWS + 1}) {
+            CrimeColumns heap = rows(0, size, "National");
+            CrimeColumns base = new CrimeColumns(OffHeapColumns.copyOf(heap), heap.getRegionNames());
+            checkRows("copy of " + size + " rows", base, 0, size, "National");
+
+            CrimeColumns appended = base.withRows(rows(size, 3, "Ohio"));
+            checkRows(size + " rows appended to", appended, 0, size, "National");
+            checkRows(size + " rows appended to", appended, size, 3, "Ohio");
+            expect(base.size() == size, "copy of " + size + " rows", "grew to " + base.size());
+
+            CrimeColumns other = base.withRows(rows(size, 2, "Texas"));
+            checkRows(size + " rows appended to twice", other, size, 2, "Texas");
+            checkRows(size + " rows appended to", appended, size, 3, "Ohio");
+
+            CrimeColumns chunk = appended.withRows(rows(size + 3, CHUNK_ROWS + 5, "Iowa"));
+            checkRows(size + " rows appended a chunk to", chunk, 0, size, "National");
+            checkRows(size + " rows appended a chunk to", chunk, size, 3, "Ohio");
+            checkRows(size + " rows appended a chunk to", chunk, size + 3, CHUNK_ROWS + 5, "Iowa");
+        }
+    } // end checkOffHeap
+
+    /**
+     * This method returns heap columns of rows whose values are worked out from the row number, so
+     * checkRows can tell which row it reads
+     */
+    private static CrimeColumns rows(int first, int count, String region) {
+        CrimeColumns columns = new CrimeColumns(count);
+        int code = columns.getRegionNames().code(region);
+        int[] ints = new int[CrimeColumn.INT_COLUMNS];
+        double[] rates = new double[CrimeColumn.RATE_COLUMNS];
+        for (int row = first; row < first + count; row++) {
+            for (int c = 0; c < ints.length; c++) {
+                ints[c] = intValue(row, c);
+            }
+            for (int c = 0; c < rates.length; c++) {
+                rates[c] = rateValue(row, c);
+            }
+            columns.appendRow(ints, rates, code);
+        }
+        return columns;
+    } // end rows
+
+    /**
+     * This method checks rows of columns filled by rows, by single reads and by block reads
+     */
+    private static void checkRows(String name, CrimeColumns columns, int first, int count, String region) {
+        expect(columns.size() >= first + count, name, "has " + columns.size() + " rows");
+        for (CrimeColumn column : CrimeColumn.values()) {
+            int slot = column.getSlot();
+            int[] ints = new int[Math.min(count, 4096)];
+            double[] rates = new double[ints.length];
+            for (int from = first; from < first + count; from += ints.length) {
+                int length = Math.min(ints.length, first + count - from);
+                if (column.isRate()) {
+                    columns.readRates(column, from, length, rates);
+                } else {
+                    columns.readInts(column, from, length, ints);
+                }
+                for (int i = 0; i < length; i++) {
+                    int row = from + i;
+                    if (column.isRate()) {
+                        expect(sameDouble(rates[i], rateValue(row, slot)), name, column + " of row " + row
+                                + " reads " + rates[i]);
+                    } else {
+                        expect(ints[i] == intValue(row, slot), name, column + " of row " + row + " reads "
+                                + ints[i]);
+                    }
+                }
+            }
+            // single reads on each side of every chunk boundary
+            for (int row = first; row < first + count; row++) {
+                if (row % CHUNK_ROWS > 1 && row % CHUNK_ROWS < CHUNK_ROWS - 2 && row > first + 1
+                        && row < first + count - 2) {
+                    continue;
+                }
+                if (column.isRate()) {
+                    expect(sameDouble(columns.getRate(column, row), rateValue(row, slot)), name,
+                            column + " of row " + row);
+                } else {
+                    expect(columns.getInt(column, row) == intValue(row, slot), name, column + " of row " + row);
+                }
+            }
+        }
+        for (int row = first; row < first + count; row++) {
+            expect(columns.getRegionName(row).equals(region), name, "region of row " + row + " is "
+                    + columns.getRegionName(row));
+        }
+    } // end checkRows
+
+    /**
+     * This method returns the whole number stored in a column of a row
+     */
+    private static int intValue(int row, int slot) {
+        return slot == 0 ? 1900 + row % 200 : row * 31 + slot;
+    }
+
+    /**
+     * This method returns the rate stored in a column of a row
+     */
+    private static double rateValue(int row, int slot) {
+        return row + slot / 100.0;
+    }
+
+    /**
+     * This method encodes a whole number column
+     */
+    private static EncodedColumn encodeInts(int[] values) {
+        return EncodedColumn.encodeInts(values, values.length);
+    }
+
+    /**
+     * This method finds the first row of the highest or lowest value by looking at every row
+     */
+    private static int extremeRow(int[] values, int from, int to, boolean highest) {
+        int best = from;
+        for (int i = from + 1; i < to; i++) {
+            if (highest ? values[i] > values[best] : values[i] < values[best]) {
+                best = i;
+            }
+        }
+        return best;
+    } // end extremeRow
+
+    /**
+     * This method compares the bits of two doubles, so -0.0 and 0.0 differ and NaN equals itself
+     */
+    private static boolean sameDouble(double a, double b) {
+        return Double.doubleToRawLongBits(a) == Double.doubleToRawLongBits(b);
+    }
+
+    /**
+     * This method counts a check and throws if it failed
+     */
+    private static void expect(boolean passed, String name, String detail) {
+        checked++;
+        if (!passed) {
+            throw new IllegalStateException(name + ": " + detail);
+        }
+    }
+} // end class
@@ -0,0 +1,194 @@
+package crimestats;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * file:    AsciiWriter.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: AsciiWriter writes text and numbers as ASCII bytes into a reused buffer and passes the
+ * buffer to an OutputStream when it fills up. Numbers are formatted digit by digit instead of through
+ * String.format, and writeFixed rounds the same way as String.format("%.nf").
+ */
+public class AsciiWriter implements Closeable, Flushable {
+    // class fields
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    // powers of ten for the supported number of decimals
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L
+    };
+
+    // largest scaled value whose fraction is accurate enough to decide the rounding without BigDecimal
+    private static final double MAX_FAST_SCALED = 1e9;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count = 0;
+    // digits of a number are written here backwards before being copied to the buffer
+    private final byte[] digits = new byte[20];
+
+    /**
+     * constructor creates a writer with a 64 KB buffer
+     * @param out stream that receives the bytes
+     */
+    public AsciiWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * constructor creates a writer with the given buffer size
+     * @param out stream that receives the bytes
+     * @param bufferSize size of the buffer in bytes, at least 32
+     */
+    public AsciiWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[Math.max(bufferSize, 32)];
+    }
+
+    /**
+     * This method writes one character, which must be ASCII
+     * @param c character to write
+     * @return this writer
+     * @throws IOException if the stream fails
+     */
+    public AsciiWriter write(char c) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * This method writes a String, which must be ASCII
+     * @param text String to write
+     * @return this writer
+     * @throws IOException if the stream fails
+     */
+    public AsciiWriter write(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * This method writes a whole number
+     * @param value number to write
+     * @return this writer
+     * @throws IOException if the stream fails
+     */
+    public AsciiWriter writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            return write(Long.toString(value));
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        if (buffer.length - count < length) {
+            flushBuffer();
+        }
+        while (length > 0) {
+            buffer[count++] = digits[--length];
+        }
+        return this;
+    }
+
+    /**
+     * This method writes a number with a fixed number of decimals, rounding half up like
+     * String.format("%.nf"). Values that are large, are not finite, or are so close to half way that
+     * the double multiplication could round the wrong way use BigDecimal instead.
+     * @param value number to write
+     * @param decimals number of decimals, 0 to 8
+     * @return this writer
+     * @throws IOException if the stream fails
+     */
+    public AsciiWriter writeFixed(double value, int decimals) throws IOException {
+        double magnitude = Math.abs(value);
+        double scaled = magnitude * POWERS_OF_TEN[decimals];
+        long whole = (long) scaled;
+        double fraction = scaled - whole;
+
+        if (Double.isNaN(value) || Double.isInfinite(value) || scaled >= MAX_FAST_SCALED
+                || Math.abs(fraction - 0.5) < 1e-6) {
+            return writeFixedSlow(value, decimals);
+        }
+
+        long rounded = fraction > 0.5 ? whole + 1 : whole;
+        // String.format keeps the sign of values that round to zero
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            write('-');
+        }
+
+        writeLong(rounded / POWERS_OF_TEN[decimals]);
+        if (decimals > 0) {
+            write('.');
+            long remainder = rounded % POWERS_OF_TEN[decimals];
+            for (int d = decimals - 1; d >= 0; d--) {
+                write((char) ('0' + remainder / POWERS_OF_TEN[d] % 10));
+            }
+        }
+        return this;
+    } // end writeFixed
+
+    /**
+     * This method writes a number with a fixed number of decimals using BigDecimal. Like String.format
+     * it rounds the shortest decimal form of the double, so 0.15 becomes 0.2 with one decimal.
+     */
+    private AsciiWriter writeFixedSlow(double value, int decimals) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return write(Double.isNaN(value) ? "NaN" : value > 0 ? "Infinity" : "-Infinity");
+        }
+        String text = BigDecimal.valueOf(value).setScale(decimals, RoundingMode.HALF_UP).toPlainString();
+        if (value < 0 && text.charAt(0) != '-' || value == 0 && 1 / value < 0) {
+            write('-');
+        }
+        return write(text);
+    } // end writeFixedSlow
+
+    /**
+     * This method writes the buffered bytes to the stream
+     */
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+
+    /**
+     * This method writes the buffered bytes and flushes the stream
+     * @throws IOException if the stream fails
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * This method writes the buffered bytes and closes the stream
+     * @throws IOException if the stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+} // end class
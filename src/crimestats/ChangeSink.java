@@ -0,0 +1,26 @@
+package crimestats;
+
+import java.io.IOException;
+
+/**
+ * file:    ChangeSink.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: ChangeSink receives the changes of a column between consecutive rows of a region from
+ * CrimeStats.forEachChange, one call per pair of rows, so the changes can be written or collected
+ * without building a list of them first.
+ */
+@FunctionalInterface
+public interface ChangeSink {
+
+    /**
+     * This method receives the change of a column from one row to the next row of the same region
+     * @param region name of the region of both rows, RegionDictionary.NATIONAL for national data
+     * @param fromYear year of the earlier row
+     * @param toYear year of the later row
+     * @param percent change as a percentage of the earlier value
+     * @param difference later value minus the earlier value, a whole number for whole number columns
+     * @throws IOException if the sink writes the change and the output fails
+     */
+    void accept(String region, int fromYear, int toYear, double percent, double difference) throws IOException;
+} // end interface
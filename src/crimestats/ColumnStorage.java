@@ -0,0 +1,40 @@
+package crimestats;
+
+/**
+ * file:    ColumnStorage.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: ColumnStorage selects how CrimeStats holds the columns once they are loaded. It can be
+ * chosen on the command line with --storage=name, for example --storage=compact or --storage=off-heap.
+ */
+public enum ColumnStorage {
+    // one int or double array per column
+    HEAP,
+    // each column packed into as few bits per row as its values need, see EncodedColumn
+    COMPACT,
+    // direct buffers outside the heap, see OffHeapColumns
+    OFF_HEAP,
+    // the CrimeSnapshot of the file mapped into memory, written first when it is not current
+    FILE;
+
+    /**
+     * This method finds the --storage=name option in the command line arguments
+     * @param args command line arguments
+     * @return ColumnStorage named by the option, or HEAP if there is no option
+     * @throws IllegalArgumentException if the name is not a column storage
+     */
+    public static ColumnStorage fromArgs(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--storage=")) {
+                String name = arg.substring("--storage=".length());
+                for (ColumnStorage storage : values()) {
+                    if (storage.name().equalsIgnoreCase(name.replace('-', '_'))) {
+                        return storage;
+                    }
+                }
+                throw new IllegalArgumentException(name);
+            }
+        }
+        return HEAP;
+    } // end fromArgs
+} // end enum
@@ -0,0 +1,85 @@
+package crimestats;
+
+/**
+ * file:    CrimeColumn.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeColumn lists the 20 columns of the crime stats csv file in file order. Whole number
+ * columns are stored in the int columns of CrimeColumns and rate columns in the double columns, slot
+ * is the index of the column within its group.
+ */
+public enum CrimeColumn {
+    YEAR("Year", false, 0),
+    POPULATION("Population", false, 1),
+    VIOLENT_CRIME("Violent crime", false, 2),
+    VIOLENT_CRIME_RATE("Violent crime rate", true, 0),
+    MURDER("Murder and nonnegligent manslaughter", false, 3),
+    MURDER_RATE("Murder and nonnegligent manslaughter rate", true, 1),
+    RAPE("Rape", false, 4),
+    RAPE_RATE("Rape rate", true, 2),
+    ROBBERY("Robbery", false, 5),
+    ROBBERY_RATE("Robbery rate", true, 3),
+    ASSAULT("Aggravated assault", false, 6),
+    ASSAULT_RATE("Aggravated assault rate", true, 4),
+    PROPERTY_CRIME("Property crime", false, 7),
+    PROPERTY_CRIME_RATE("Property crime rate", true, 5),
+    BURGLARY("Burglary", false, 8),
+    BURGLARY_RATE("Burglary rate", true, 6),
+    THEFT("Larceny-theft", false, 9),
+    THEFT_RATE("Larceny-theft rate", true, 7),
+    VEHICLE_THEFT("Motor vehicle theft", false, 10),
+    VEHICLE_THEFT_RATE("Motor vehicle theft rate", true, 8);
+
+    // number of whole number columns and rate columns
+    public static final int INT_COLUMNS = 11;
+    public static final int RATE_COLUMNS = 9;
+
+    private final String header;
+    private final boolean rate;
+    private final int slot;
+
+    CrimeColumn(String header, boolean rate, int slot) {
+        this.header = header;
+        this.rate = rate;
+        this.slot = slot;
+    }
+
+    /**
+     * getter method to get the column header as it appears in Crime.csv, without trailing spaces
+     * @return String column header
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * getter method to check if the column holds a rate per 100,000 people
+     * @return true for rate columns, false for whole number columns
+     */
+    public boolean isRate() {
+        return rate;
+    }
+
+    /**
+     * getter method to get the index of the column within the int or rate columns
+     * @return int slot
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * This method finds the column for an enum name such as murder_rate, ignoring case
+     * @param name enum name of the column
+     * @return CrimeColumn for the name
+     * @throws IllegalArgumentException if the name is not a column
+     */
+    public static CrimeColumn fromName(String name) {
+        for (CrimeColumn column : values()) {
+            if (column.name().equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("unknown column: " + name);
+    } // end fromName
+} // end enum
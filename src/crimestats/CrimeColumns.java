@@ -0,0 +1,960 @@
+package crimestats;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * file:    CrimeColumns.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeColumns stores the crime stats data by column instead of by row. Each whole number
+ * column is an int array and each rate column is a double array, all indexed by row starting at 0,
+ * so scans over one column read contiguous memory. The region of each row is kept as an int code of a
+ * RegionDictionary, rows of files without a region column are in the national region.
+ *
+ * Columns are filled with appendRow and appendAll while a file is read. Once they are published in a
+ * CrimeDataset they are not changed again, rows are appended with withRows, which returns new columns
+ * and leaves these as they are, so threads reading them never see a row half written.
+ *
+ * Columns loaded with IngestMode.LAZY are backed by a LazyCsvColumns and each array is decoded from the
+ * file the first time it is read, so every access goes through intArray, rateArray and regionArray.
+ *
+ * Columns returned by compact are stored as EncodedColumns for ColumnStorage.COMPACT. Reading one row
+ * unpacks just that row, the lowest and highest rates are found by scanning the packed numbers, and
+ * queries that need a whole column as an array, such as grouping and the year index, decode a copy of
+ * it that is dropped after the query. Appending rows to compact columns encodes every column again.
+ * Columns of ColumnStorage.OFF_HEAP and ColumnStorage.FILE are kept outside the heap by an
+ * OffHeapColumns and are read the same way, a row or a scan for the lowest and highest rates in place
+ * and a copy of a whole column for the queries that need an array.
+ */
+public class CrimeColumns {
+    // class fields
+
+    // rows a scan reads at a time with readInts, readRates and readRegions, so compact and off heap
+    // columns are scanned without a copy of the whole column, the size of an off heap chunk
+    static final int BLOCK_ROWS = OffHeapColumns.CHUNK_ROWS;
+
+    // arrays of the columns, the arrays of lazily decoded columns stay null and are kept by lazy
+    private int[][] ints;
+    private double[][] rates;
+    // region code of each row and the names of the codes
+    private int[] regions;
+    private final RegionDictionary regionNames;
+    // rows of a file decoded a column at a time, null when the arrays are filled
+    private final LazyCsvColumns lazy;
+    // packed columns of compact columns, null otherwise. A rate column that cannot be stored as scaled
+    // whole numbers keeps its array in rates and its encoded column is null.
+    private final EncodedColumn[] intCodes;
+    private final EncodedColumn[] rateCodes;
+    private final EncodedColumn regionCodes;
+    // chunks of the columns outside the heap, null when they are in the heap
+    private final OffHeapColumns offHeap;
+    private int size = 0;
+    // incremented whenever rows are added so cached results can tell the data changed
+    private long version = 0;
+    // set when withRows wrote rows past the end of these columns into the arrays they share, so a
+    // second withRows of the same columns copies the arrays instead of writing over those rows
+    private final AtomicBoolean extended = new AtomicBoolean();
+
+    /**
+     * constructor creates empty columns with room for the given number of rows
+     * @param capacity initial number of rows
+     */
+    public CrimeColumns(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.ints = new int[CrimeColumn.INT_COLUMNS][capacity];
+        this.rates = new double[CrimeColumn.RATE_COLUMNS][capacity];
+        this.regions = new int[capacity];
+        this.regionNames = new RegionDictionary();
+        this.lazy = null;
+        this.intCodes = null;
+        this.rateCodes = null;
+        this.regionCodes = null;
+        this.offHeap = null;
+    }
+
+    /**
+     * constructor wraps arrays that are already filled, such as columns read from a snapshot
+     * @param ints whole number columns in CrimeColumn slot order
+     * @param rates rate columns in CrimeColumn slot order
+     * @param regions region code of each row
+     * @param regionNames names of the region codes
+     * @param size number of rows filled in every array
+     */
+    CrimeColumns(int[][] ints, double[][] rates, int[] regions, RegionDictionary regionNames, int size) {
+        this.ints = ints;
+        this.rates = rates;
+        this.regions = regions;
+        this.regionNames = regionNames;
+        this.lazy = null;
+        this.intCodes = null;
+        this.rateCodes = null;
+        this.regionCodes = null;
+        this.offHeap = null;
+        this.size = size;
+    }
+
+    /**
+     * constructor for the rows of a file indexed by LazyCsvColumns, no column is decoded until it is read
+     * @param lazy index of the rows of the file
+     */
+    CrimeColumns(LazyCsvColumns lazy) {
+        this.ints = new int[CrimeColumn.INT_COLUMNS][];
+        this.rates = new double[CrimeColumn.RATE_COLUMNS][];
+        this.regions = null;
+        this.regionNames = lazy.getRegionNames();
+        this.lazy = lazy;
+        this.intCodes = null;
+        this.rateCodes = null;
+        this.regionCodes = null;
+        this.offHeap = null;
+        this.size = lazy.size();
+        this.version = size;
+    }
+
+    /**
+     * constructor for compact columns, rate columns that could not be encoded keep their arrays
+     */
+    private CrimeColumns(EncodedColumn[] intCodes, EncodedColumn[] rateCodes, double[][] rates,
+                         EncodedColumn regionCodes, RegionDictionary regionNames, int size) {
+        this.ints = new int[CrimeColumn.INT_COLUMNS][];
+        this.rates = rates;
+        this.regions = null;
+        this.regionNames = regionNames;
+        this.lazy = null;
+        this.intCodes = intCodes;
+        this.rateCodes = rateCodes;
+        this.regionCodes = regionCodes;
+        this.offHeap = null;
+        this.size = size;
+    }
+
+    /**
+     * constructor for columns kept outside the heap
+     * @param offHeap chunks of every column
+     * @param regionNames names of the region codes
+     */
+    CrimeColumns(OffHeapColumns offHeap, RegionDictionary regionNames) {
+        this.ints = new int[CrimeColumn.INT_COLUMNS][];
+        this.rates = new double[CrimeColumn.RATE_COLUMNS][];
+        this.regions = null;
+        this.regionNames = regionNames;
+        this.lazy = null;
+        this.intCodes = null;
+        this.rateCodes = null;
+        this.regionCodes = null;
+        this.offHeap = offHeap;
+        this.size = offHeap.size();
+    }
+
+    /**
+     * getter method to get the number of rows stored
+     * @return int number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * getter method to get the version of the data, it changes every time rows are added
+     * @return long version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * This method returns the value of a whole number column for one row
+     * @param column whole number column
+     * @param row row index starting at 0
+     * @return int value
+     */
+    public int getInt(CrimeColumn column, int row) {
+        int slot = column.getSlot();
+        if (offHeap != null) {
+            return offHeap.getInt(slot, row);
+        }
+        return intCodes != null ? intCodes[slot].getInt(row) : intArray(slot)[row];
+    }
+
+    /**
+     * This method returns the value of a rate column for one row
+     * @param column rate column
+     * @param row row index starting at 0
+     * @return double value
+     */
+    public double getRate(CrimeColumn column, int row) {
+        if (offHeap != null) {
+            return offHeap.getRate(column.getSlot(), row);
+        }
+        EncodedColumn codes = rateCodes(column.getSlot());
+        return codes != null ? codes.getRate(row) : rateArray(column.getSlot())[row];
+    }
+
+    /**
+     * This method returns the region code of one row
+     * @param row row index starting at 0
+     * @return int code in the region dictionary
+     */
+    public int getRegion(int row) {
+        if (offHeap != null) {
+            return offHeap.getRegion(row);
+        }
+        return regionCodes != null ? regionCodes.getInt(row) : regionArray()[row];
+    }
+
+    /**
+     * This method returns the region name of one row
+     * @param row row index starting at 0
+     * @return String region name
+     */
+    public String getRegionName(int row) {
+        return regionNames.getName(getRegion(row));
+    }
+
+    /**
+     * getter method to get the names of the region codes, the regions of lazily decoded columns are
+     * decoded first so the names are complete
+     * @return RegionDictionary of the regions
+     */
+    public RegionDictionary getRegionNames() {
+        if (lazy != null) {
+            regionArray();
+        }
+        return regionNames;
+    }
+
+    /**
+     * This method checks if any row has a region other than the national region
+     * @return true if the data has a region column
+     */
+    public boolean hasRegions() {
+        return getRegionNames().size() > 1;
+    }
+
+    /**
+     * This method checks if the columns are decoded from the file a column at a time
+     * @return true for columns loaded with IngestMode.LAZY
+     */
+    public boolean isLazy() {
+        return lazy != null;
+    }
+
+    /**
+     * This method checks if the columns are packed into EncodedColumns
+     * @return true for columns returned by compact
+     */
+    public boolean isCompact() {
+        return intCodes != null;
+    }
+
+    /**
+     * This method checks if the columns are kept outside the heap
+     * @return true for columns of ColumnStorage.OFF_HEAP and ColumnStorage.FILE
+     */
+    public boolean isOffHeap() {
+        return offHeap != null;
+    }
+
+    /**
+     * This method returns the array of region codes, only the first size() values are rows. Compact
+     * and off heap columns copy a new array on every call, scans read them in blocks of BLOCK_ROWS with
+     * readRegions instead.
+     * @return int array of region codes
+     */
+    int[] regionArray() {
+        int[] codes = regions;
+        if (codes == null) {
+            if (lazy != null) {
+                return lazy.regionColumn();
+            }
+            codes = new int[size];
+            readRegions(0, size, codes);
+        }
+        return codes;
+    }
+
+    /**
+     * This method copies the region codes of rows to an array without copying the whole column
+     * @param from first row
+     * @param count number of rows
+     * @param into array that receives the codes from index 0
+     */
+    void readRegions(int from, int count, int[] into) {
+        if (offHeap != null) {
+            offHeap.readRegions(from, count, into);
+        } else if (regionCodes != null) {
+            regionCodes.decodeInts(from, count, into);
+        } else {
+            System.arraycopy(regionArray(), from, into, 0, count);
+        }
+    } // end readRegions
+
+    /**
+     * This method returns the array behind a whole number column, only the first size() values are
+     * rows. Compact and off heap columns copy a new array on every call, scans read them in blocks of
+     * BLOCK_ROWS with readInts instead.
+     * @param column whole number column
+     * @return int array of the column
+     */
+    int[] intArray(CrimeColumn column) {
+        return intArray(column.getSlot());
+    }
+
+    /**
+     * This method returns the array of a whole number slot, decoding it if the columns are lazy and
+     * copying it if they are compact or off heap
+     */
+    private int[] intArray(int slot) {
+        int[] values = ints[slot];
+        if (values == null) {
+            if (lazy != null) {
+                return lazy.intColumn(slot);
+            }
+            values = new int[size];
+            readInts(slot, 0, size, values);
+        }
+        return values;
+    }
+
+    /**
+     * This method copies rows of a whole number column to an array without copying the whole column
+     * @param column whole number column
+     * @param from first row
+     * @param count number of rows
+     * @param into array that receives the rows from index 0
+     */
+    void readInts(CrimeColumn column, int from, int count, int[] into) {
+        readInts(column.getSlot(), from, count, into);
+    }
+
+    /**
+     * This method copies rows of a whole number slot from whichever storage holds it
+     */
+    private void readInts(int slot, int from, int count, int[] into) {
+        if (offHeap != null) {
+            offHeap.readInts(slot, from, count, into);
+        } else if (intCodes != null) {
+            intCodes[slot].decodeInts(from, count, into);
+        } else {
+            System.arraycopy(intArray(slot), from, into, 0, count);
+        }
+    } // end readInts
+
+    /**
+     * This method returns the array behind a rate column, only the first size() values are rows.
+     * Compact and off heap columns copy a new array on every call, scans read them in blocks of
+     * BLOCK_ROWS with readRates instead.
+     * @param column rate column
+     * @return double array of the column
+     */
+    double[] rateArray(CrimeColumn column) {
+        return rateArray(column.getSlot());
+    }
+
+    /**
+     * This method returns the array of a rate slot, decoding it if the columns are lazy and copying it
+     * if they are compact or off heap
+     */
+    private double[] rateArray(int slot) {
+        double[] values = rates[slot];
+        if (values == null) {
+            if (lazy != null) {
+                return lazy.rateColumn(slot);
+            }
+            values = new double[size];
+            readRates(slot, 0, size, values);
+        }
+        return values;
+    }
+
+    /**
+     * This method copies rows of a rate column to an array without copying the whole column
+     * @param column rate column
+     * @param from first row
+     * @param count number of rows
+     * @param into array that receives the rows from index 0
+     */
+    void readRates(CrimeColumn column, int from, int count, double[] into) {
+        readRates(column.getSlot(), from, count, into);
+    }
+
+    /**
+     * This method copies rows of a rate slot from whichever storage holds it, a compact rate column
+     * that could not be encoded is in its array
+     */
+    private void readRates(int slot, int from, int count, double[] into) {
+        if (offHeap != null) {
+            offHeap.readRates(slot, from, count, into);
+        } else if (rates[slot] == null && rateCodes != null) {
+            rateCodes[slot].decodeRates(from, count, into);
+        } else {
+            System.arraycopy(rateArray(slot), from, into, 0, count);
+        }
+    } // end readRates
+
+    /**
+     * This method returns the encoded column of a rate slot, or null if the rates are in an array
+     */
+    private EncodedColumn rateCodes(int slot) {
+        return rateCodes != null ? rateCodes[slot] : null;
+    }
+
+    /**
+     * This method appends one row of the national region, growing every column when they are full
+     * @param intValues the 11 whole number values in CrimeColumn slot order
+     * @param rateValues the 9 rate values in CrimeColumn slot order
+     */
+    void appendRow(int[] intValues, double[] rateValues) {
+        appendRow(intValues, rateValues, 0);
+    }
+
+    /**
+     * This method appends one row, growing every column when they are full
+     * @param intValues the 11 whole number values in CrimeColumn slot order
+     * @param rateValues the 9 rate values in CrimeColumn slot order
+     * @param region code of the region in the region dictionary of these columns
+     */
+    void appendRow(int[] intValues, double[] rateValues, int region) {
+        ensureCapacity(size + 1);
+        regions[size] = region;
+        for (int c = 0; c < CrimeColumn.INT_COLUMNS; c++) {
+            ints[c][size] = intValues[c];
+        }
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            rates[c][size] = rateValues[c];
+        }
+        size++;
+        version++;
+    }
+
+    /**
+     * This method appends every row of another set of columns, translating their region codes to the
+     * codes of these columns
+     * @param other columns to copy the rows from
+     */
+    void appendAll(CrimeColumns other) {
+        ensureCapacity(size + other.size);
+        int[] codes = regionCodes(regionNames, other);
+        boolean same = true;
+        for (int code = 0; code < codes.length; code++) {
+            same &= codes[code] == code;
+        }
+        int[] otherRegions = other.regionArray();
+        if (same) {
+            System.arraycopy(otherRegions, 0, regions, size, other.size);
+        } else {
+            for (int i = 0; i < other.size; i++) {
+                regions[size + i] = codes[otherRegions[i]];
+            }
+        }
+        for (int c = 0; c < CrimeColumn.INT_COLUMNS; c++) {
+            System.arraycopy(other.intArray(c), 0, ints[c], size, other.size);
+        }
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            System.arraycopy(other.rateArray(c), 0, rates[c], size, other.size);
+        }
+        size += other.size;
+        version++;
+    }
+
+    /**
+     * This method returns the code in a dictionary of each region code of other columns, adding the
+     * names the dictionary does not have
+     */
+    private static int[] regionCodes(RegionDictionary names, CrimeColumns other) {
+        int[] codes = new int[other.regionNames.size()];
+        for (int code = 0; code < codes.length; code++) {
+            codes[code] = names.code(other.regionNames.getName(code));
+        }
+        return codes;
+    } // end regionCodes
+
+    /**
+     * This method returns new columns holding these rows followed by the rows of another set of columns,
+     * without changing these columns. The new columns share the arrays of these when they have room,
+     * the new rows are written past the last row of these columns where readers of them never look, so
+     * appending a few rows does not copy every column. When the arrays are full, or rows were already
+     * appended to these columns, the arrays are copied with room to spare. A region name that is new
+     * goes in a copy of the region dictionary. Lazily decoded columns are decoded in full first, and
+     * compact columns are decoded, appended to and encoded again. Off heap columns share their chunks
+     * the same way as arrays, see OffHeapColumns.withRows.
+     * @param other columns to copy the rows from
+     * @return CrimeColumns with the rows of both, the version one higher than these
+     */
+    CrimeColumns withRows(CrimeColumns other) {
+        if (lazy != null) {
+            return decoded().withRows(other);
+        }
+        if (intCodes != null) {
+            CrimeColumns result = new CrimeColumns(size + other.size);
+            result.appendAll(this);
+            result.version = version;
+            result.appendAll(other);
+            return result.compact();
+        }
+
+        RegionDictionary names = regionNames;
+        for (int code = 0; code < other.regionNames.size(); code++) {
+            if (regionNames.find(other.regionNames.getName(code)) < 0) {
+                names = regionNames.copy();
+                break;
+            }
+        }
+        if (offHeap != null) {
+            CrimeColumns result = new CrimeColumns(offHeap.withRows(other, regionCodes(names, other)), names);
+            result.version = version + 1;
+            return result;
+        }
+
+        int rows = size + other.size;
+        CrimeColumns result;
+        if (rows <= regions.length && extended.compareAndSet(false, true)) {
+            result = new CrimeColumns(ints.clone(), rates.clone(), regions, names, size);
+        } else {
+            int capacity = Math.max(rows, regions.length * 2);
+            int[][] intCopy = new int[CrimeColumn.INT_COLUMNS][];
+            double[][] rateCopy = new double[CrimeColumn.RATE_COLUMNS][];
+            for (int c = 0; c < CrimeColumn.INT_COLUMNS; c++) {
+                intCopy[c] = Arrays.copyOf(ints[c], capacity);
+            }
+            for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+                rateCopy[c] = Arrays.copyOf(rates[c], capacity);
+            }
+            result = new CrimeColumns(intCopy, rateCopy, Arrays.copyOf(regions, capacity), names, size);
+        }
+        result.version = version;
+        result.appendAll(other);
+        return result;
+    } // end withRows
+
+    /**
+     * This method decodes every column and returns columns holding the arrays
+     */
+    private CrimeColumns decoded() {
+        int[][] intArrays = new int[CrimeColumn.INT_COLUMNS][];
+        double[][] rateArrays = new double[CrimeColumn.RATE_COLUMNS][];
+        for (int c = 0; c < CrimeColumn.INT_COLUMNS; c++) {
+            intArrays[c] = intArray(c);
+        }
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            rateArrays[c] = rateArray(c);
+        }
+        int[] codes = regionArray();
+        CrimeColumns result = new CrimeColumns(intArrays, rateArrays, codes, regionNames, size);
+        result.version = version;
+        return result;
+    } // end decoded
+
+    /**
+     * This method returns the same rows packed into EncodedColumns, which hold several times as many
+     * rows in the same memory. These columns are not changed.
+     * @return CrimeColumns with the same rows and version, these columns if they are already compact
+     */
+    public CrimeColumns compact() {
+        return compact(Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * This method returns the same rows packed into EncodedColumns, encoding the columns on the pool
+     * when there are enough rows
+     * @param parallelism decides whether the columns are encoded on separate threads
+     * @return CrimeColumns with the same rows and version, these columns if they are already compact
+     */
+    CrimeColumns compact(Parallelism parallelism) {
+        if (intCodes != null) {
+            return this;
+        }
+
+        // one task per column, the region names are complete once the region column is read
+        EncodedColumn[] intEncoded = new EncodedColumn[CrimeColumn.INT_COLUMNS];
+        EncodedColumn[] rateEncoded = new EncodedColumn[CrimeColumn.RATE_COLUMNS];
+        double[][] rateArrays = new double[CrimeColumn.RATE_COLUMNS][];
+        EncodedColumn[] regionEncoded = new EncodedColumn[1];
+        Runnable[] tasks = new Runnable[CrimeColumn.INT_COLUMNS + CrimeColumn.RATE_COLUMNS + 1];
+        for (int c = 0; c < CrimeColumn.INT_COLUMNS; c++) {
+            int slot = c;
+            tasks[c] = () -> intEncoded[slot] = EncodedColumn.encodeInts(intArray(slot), size);
+        }
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            int slot = c;
+            tasks[CrimeColumn.INT_COLUMNS + c] = () -> {
+                double[] values = rateArray(slot);
+                rateEncoded[slot] = EncodedColumn.encodeRates(values, size);
+                if (rateEncoded[slot] == null) {
+                    rateArrays[slot] = Arrays.copyOf(values, size);
+                }
+            };
+        }
+        tasks[tasks.length - 1] = () -> regionEncoded[0] = EncodedColumn.encodeInts(regionArray(), size);
+        parallelism.runAll(size, tasks);
+
+        CrimeColumns result = new CrimeColumns(intEncoded, rateEncoded, rateArrays, regionEncoded[0],
+                getRegionNames(), size);
+        result.version = version;
+        return result;
+    } // end compact
+
+    /**
+     * This method estimates the memory taken by the rows of the columns, in the heap or outside it for
+     * off heap columns, not counting spare capacity
+     * @return long bytes
+     */
+    long memoryBytes() {
+        if (offHeap != null) {
+            return offHeap.getBytes();
+        }
+        if (intCodes == null) {
+            return (long) size * (4 * CrimeColumn.INT_COLUMNS + 8 * CrimeColumn.RATE_COLUMNS + 4);
+        }
+        long bytes = regionCodes.memoryBytes();
+        for (EncodedColumn codes : intCodes) {
+            bytes += codes.memoryBytes();
+        }
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            bytes += rateCodes[c] != null ? rateCodes[c].memoryBytes() : 8L * size;
+        }
+        return bytes;
+    } // end memoryBytes
+
+    /**
+     * This method makes sure the columns can hold a number of rows without growing again
+     * @param capacity number of rows
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > ints[0].length) {
+            grow(Math.max(capacity, ints[0].length * 2));
+        }
+    }
+
+    /**
+     * This method resizes every column to the new capacity
+     * @param capacity new number of rows
+     */
+    private void grow(int capacity) {
+        for (int c = 0; c < CrimeColumn.INT_COLUMNS; c++) {
+            ints[c] = Arrays.copyOf(ints[c], capacity);
+        }
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            rates[c] = Arrays.copyOf(rates[c], capacity);
+        }
+        regions = Arrays.copyOf(regions, capacity);
+    }
+
+    /**
+     * This method finds the row with the highest value of a rate column, the first row wins a tie
+     * @param column rate column
+     * @return int row index or -1 if there are no rows
+     */
+    public int maxRow(CrimeColumn column) {
+        EncodedColumn codes = rateCodes(column.getSlot());
+        if (codes != null) {
+            return codes.extremeRow(0, size, true);
+        }
+        if (offHeap != null) {
+            return offHeap.extremeRow(column.getSlot(), 0, size, true);
+        }
+        double[] values = rateArray(column);
+        int maxRow = -1;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < size; i++) {
+            if (values[i] > max) {
+                max = values[i];
+                maxRow = i;
+            }
+        }
+        return maxRow;
+    } // end maxRow
+
+    /**
+     * This method finds the row with the lowest value of a rate column, the first row wins a tie
+     * @param column rate column
+     * @return int row index or -1 if there are no rows
+     */
+    public int minRow(CrimeColumn column) {
+        EncodedColumn codes = rateCodes(column.getSlot());
+        if (codes != null) {
+            return codes.extremeRow(0, size, false);
+        }
+        if (offHeap != null) {
+            return offHeap.extremeRow(column.getSlot(), 0, size, false);
+        }
+        double[] values = rateArray(column);
+        int minRow = -1;
+        double min = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < size; i++) {
+            if (values[i] < min) {
+                min = values[i];
+                minRow = i;
+            }
+        }
+        return minRow;
+    } // end minRow
+
+    /**
+     * This method finds the rows with the k highest or k lowest values of a rate column in one pass,
+     * keeping the best rows found so far in a heap whose root is the one to drop next
+     * @param column rate column
+     * @param k number of rows
+     * @param highest true for the highest values, false for the lowest
+     * @return int[] row indexes from the most extreme value, the first row wins a tie
+     */
+    public int[] topRows(CrimeColumn column, int k, boolean highest) {
+        return topRows(column, k, highest, Parallelism.SEQUENTIAL);
+    } // end topRows
+
+    /**
+     * This method finds the rows with the k highest or k lowest values of a rate column. When the rows
+     * are split across threads each part keeps its own heap and the parts are merged in row order. The
+     * column is read a block of BLOCK_ROWS at a time and the heaps keep the values of their rows, so
+     * compact and off heap columns are not copied to the heap.
+     * @param column rate column
+     * @param k number of rows
+     * @param highest true for the highest values, false for the lowest
+     * @param parallelism decides whether the rows are split
+     * @return int[] row indexes from the most extreme value, the first row wins a tie
+     */
+    int[] topRows(CrimeColumn column, int k, boolean highest, Parallelism parallelism) {
+        return parallelism.reduce(0, size, (from, to) -> topRange(column, from, to, k, highest),
+                (earlier, later) -> mergeTop(earlier, later, k, highest)).rows;
+    } // end topRows
+
+    /**
+     * The most extreme rows of part of a column in order, with their values so parts can be merged
+     * without reading the column again
+     */
+    private static final class TopRows {
+        private final int[] rows;
+        private final double[] values;
+
+        private TopRows(int[] rows, double[] values) {
+            this.rows = rows;
+            this.values = values;
+        }
+    }
+
+    /**
+     * This method keeps the k most extreme rows from one row to another in a heap and returns them in
+     * order
+     */
+    private TopRows topRange(CrimeColumn column, int from, int to, int k, boolean highest) {
+        int[] heap = new int[Math.max(0, Math.min(k, to - from))];
+        double[] heapValues = new double[heap.length];
+        int heapSize = 0;
+
+        double[] block = new double[Math.min(to - from, BLOCK_ROWS)];
+        for (int start = from; start < to && heap.length > 0; start += block.length) {
+            int count = Math.min(block.length, to - start);
+            readRates(column, start, count, block);
+            for (int b = 0; b < count; b++) {
+                int i = start + b;
+                double value = block[b];
+                if (heapSize < heap.length) {
+                    // sift the new row up from the bottom
+                    int child = heapSize++;
+                    while (child > 0) {
+                        int parent = (child - 1) / 2;
+                        if (!ranksBefore(heapValues[parent], heap[parent], value, i, highest)) {
+                            break;
+                        }
+                        heap[child] = heap[parent];
+                        heapValues[child] = heapValues[parent];
+                        child = parent;
+                    }
+                    heap[child] = i;
+                    heapValues[child] = value;
+                } else if (ranksBefore(value, i, heapValues[0], heap[0], highest)) {
+                    siftDown(heap, heapValues, heapSize, i, value, highest);
+                }
+            }
+        }
+
+        // remove the root until the heap is empty, filling the result from the back
+        int[] rows = new int[heapSize];
+        double[] values = new double[heapSize];
+        for (int n = heapSize; n > 0; n--) {
+            rows[n - 1] = heap[0];
+            values[n - 1] = heapValues[0];
+            siftDown(heap, heapValues, n - 1, heap[n - 1], heapValues[n - 1], highest);
+        }
+        return new TopRows(rows, values);
+    } // end topRange
+
+    /**
+     * This method merges the ordered top rows of two parts and keeps the first k
+     */
+    private static TopRows mergeTop(TopRows earlier, TopRows later, int k, boolean highest) {
+        int length = Math.min(k, earlier.rows.length + later.rows.length);
+        int[] rows = new int[length];
+        double[] values = new double[length];
+        int a = 0;
+        int b = 0;
+        for (int n = 0; n < length; n++) {
+            if (b == later.rows.length || (a < earlier.rows.length
+                    && ranksBefore(earlier.values[a], earlier.rows[a], later.values[b], later.rows[b], highest))) {
+                rows[n] = earlier.rows[a];
+                values[n] = earlier.values[a++];
+            } else {
+                rows[n] = later.rows[b];
+                values[n] = later.values[b++];
+            }
+        }
+        return new TopRows(rows, values);
+    } // end mergeTop
+
+    /**
+     * This method places a row at the root of the heap and moves it down below every row that ranks
+     * after it
+     */
+    private static void siftDown(int[] heap, double[] heapValues, int heapSize, int row, double value,
+                                 boolean highest) {
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize
+                    && ranksBefore(heapValues[child], heap[child], heapValues[child + 1], heap[child + 1], highest)) {
+                child++;
+            }
+            if (!ranksBefore(value, row, heapValues[child], heap[child], highest)) {
+                break;
+            }
+            heap[parent] = heap[child];
+            heapValues[parent] = heapValues[child];
+            parent = child;
+        }
+        heap[parent] = row;
+        heapValues[parent] = value;
+    } // end siftDown
+
+    /**
+     * This method returns true if row a with value va is more extreme than row b with value vb, the
+     * earlier row on a tie
+     */
+    private static boolean ranksBefore(double va, int a, double vb, int b, boolean highest) {
+        if (va != vb) {
+            return highest ? va > vb : va < vb;
+        }
+        return a < b;
+    }
+
+    /**
+     * This method returns a sorted copy of the values of a rate column
+     * @param column rate column
+     * @return double[] values from lowest to highest
+     */
+    public double[] sortedRates(CrimeColumn column) {
+        return sortedRates(column, Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * This method returns a sorted copy of the values of a rate column, sorted with Arrays.parallelSort
+     * on the pool when there are enough rows
+     * @param column rate column
+     * @param parallelism decides whether the sort is split across threads
+     * @return double[] values from lowest to highest
+     */
+    double[] sortedRates(CrimeColumn column, Parallelism parallelism) {
+        double[] values = new double[size];
+        readRates(column, 0, size, values);
+        if (parallelism.isParallel(values.length)) {
+            parallelism.getPool().invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(values)));
+        } else {
+            Arrays.sort(values);
+        }
+        return values;
+    }
+
+    /**
+     * This method adds every value of a rate column to a new KllSketch, reading the column a block at a
+     * time so it is neither copied nor sorted
+     * @param column rate column
+     * @return KllSketch of the values
+     */
+    KllSketch sketchRates(CrimeColumn column) {
+        KllSketch sketch = new KllSketch();
+        double[] block = new double[Math.min(size, BLOCK_ROWS)];
+        for (int from = 0; from < size; from += block.length) {
+            int count = Math.min(block.length, size - from);
+            readRates(column, from, count, block);
+            for (int i = 0; i < count; i++) {
+                sketch.update(block[i]);
+            }
+        }
+        return sketch;
+    } // end sketchRates
+
+    /**
+     * This method finds the lowest and highest value of every rate column in one pass over the rows
+     * @return RateSummary for the current version of the data
+     */
+    public RateSummary summarizeRates() {
+        return summarizeRates(Parallelism.SEQUENTIAL);
+    } // end summarizeRates
+
+    /**
+     * This method finds the lowest and highest value of every rate column, splitting the rows across
+     * threads when there are enough of them
+     * @param parallelism decides whether the rows are split
+     * @return RateSummary for the current version of the data
+     */
+    RateSummary summarizeRates(Parallelism parallelism) {
+        long current = version;
+        int rows = size;
+        return parallelism.reduce(0, rows, (from, to) -> summarizeRows(new RateSummary(current, rows), from, to),
+                RateSummary::addAll);
+    } // end summarizeRates
+
+    /**
+     * This method extends the summary of the first rows with the rows appended after them
+     * @param previous summary of an earlier version of these columns
+     * @param parallelism decides whether the new rows are split across threads
+     * @return RateSummary for the current version of the data
+     */
+    RateSummary summarizeRates(RateSummary previous, Parallelism parallelism) {
+        long current = version;
+        int rows = size;
+        RateSummary added = parallelism.reduce(previous.getRowCount(), rows,
+                (from, to) -> summarizeRows(new RateSummary(current, rows), from, to), RateSummary::addAll);
+        return new RateSummary(previous, current, rows).addAll(added);
+    } // end summarizeRates
+
+    /**
+     * This method adds the rows from one row to another to the summary, an encoded column is scanned
+     * in its packed form and an off heap column in place, and only their lowest and highest rows are
+     * added
+     */
+    private RateSummary summarizeRows(RateSummary summary, int from, int to) {
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            EncodedColumn codes = rateCodes(c);
+            if (codes != null) {
+                int low = codes.extremeRow(from, to, false);
+                if (low >= 0) {
+                    int high = codes.extremeRow(from, to, true);
+                    summary.add(c, low, codes.getRate(low));
+                    summary.add(c, high, codes.getRate(high));
+                }
+            } else if (offHeap != null) {
+                int low = offHeap.extremeRow(c, from, to, false);
+                int high = offHeap.extremeRow(c, from, to, true);
+                if (low >= 0) {
+                    summary.add(c, low, offHeap.getRate(c, low));
+                }
+                if (high >= 0) {
+                    summary.add(c, high, offHeap.getRate(c, high));
+                }
+            } else {
+                double[] values = rateArray(c);
+                for (int i = from; i < to; i++) {
+                    summary.add(c, i, values[i]);
+                }
+            }
+        }
+        return summary;
+    } // end summarizeRows
+} // end class
@@ -0,0 +1,456 @@
+package crimestats;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * file:    CrimeCsvParser.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeCsvParser reads one line of the crime stats csv file character by character and
+ * converts each field straight into an int or double without creating substrings. A line can be a
+ * String read by a BufferedReader or a range of ASCII bytes in a ByteBuffer, such as a memory mapped
+ * file. Spaces and tabs around a field and a trailing carriage return are ignored. A row may start
+ * with an extra field naming its region, such as "Ohio,1994,...", recognised by starting with a letter.
+ * Region names cannot contain commas and must be ASCII, so every ingest mode gives a name the same
+ * region code whatever the encoding of the file. A single field of a row can also be parsed on its own, skipping
+ * the fields before it, which is how LazyCsvColumns decodes one column. One parser is reused for every
+ * line of a file, it is not safe to share between threads.
+ */
+public class CrimeCsvParser {
+    // class fields
+
+    // powers of ten that are exact as doubles, used to scale the decimal digits of a rate
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // most digits a rate can have and still be converted exactly with a single division
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private static final CrimeColumn[] COLUMNS = CrimeColumn.values();
+
+    // values of the line being parsed, reused for every line
+    private final int[] intValues = new int[CrimeColumn.INT_COLUMNS];
+    private final double[] rateValues = new double[CrimeColumn.RATE_COLUMNS];
+    // name of the region of the line being parsed, reused for every line
+    private char[] regionChars = new char[32];
+    // 1 if the line being parsed starts with a region field, added to column numbers in errors
+    private int firstField;
+
+    // the line being parsed is either chars or bytes, the other one is null
+    private CharSequence chars;
+    private ByteBuffer bytes;
+    // position of the next character to read and the end of the current line
+    private int pos;
+    private int end;
+
+    /**
+     * This method checks if a line is the header row, header rows start with a letter and have no digits,
+     * unlike data rows that start with a region name
+     * @param line one line of the csv file
+     * @return true if the line is a header row
+     */
+    public static boolean isHeader(CharSequence line) {
+        boolean letter = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return false;
+            }
+            if (!letter && !isSpace(c)) {
+                if (!Character.isLetter(c)) {
+                    return false;
+                }
+                letter = true;
+            }
+        }
+        return letter;
+    } // end isHeader
+
+    /**
+     * This method checks if a range of bytes is the header row
+     * @param buffer bytes of the file
+     * @param start index of the first byte of the line
+     * @param end index after the last byte of the line
+     * @return true if the line is a header row
+     */
+    public static boolean isHeader(ByteBuffer buffer, int start, int end) {
+        boolean letter = false;
+        for (int i = start; i < end; i++) {
+            char c = (char) (buffer.get(i) & 0xff);
+            if (c >= '0' && c <= '9') {
+                return false;
+            }
+            if (!letter && !isSpace(c)) {
+                if (!Character.isLetter(c)) {
+                    return false;
+                }
+                letter = true;
+            }
+        }
+        return letter;
+    } // end isHeader
+
+    /**
+     * This method checks if a line has nothing but spaces, such as the empty line at the end of a file
+     * @param line one line of the csv file
+     * @return true if the line has no data
+     */
+    public static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!isSpace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    } // end isBlank
+
+    /**
+     * This method checks if a range of bytes has nothing but spaces
+     * @param buffer bytes of the file
+     * @param start index of the first byte of the line
+     * @param end index after the last byte of the line
+     * @return true if the line has no data
+     */
+    public static boolean isBlank(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isSpace((char) (buffer.get(i) & 0xff))) {
+                return false;
+            }
+        }
+        return true;
+    } // end isBlank
+
+    /**
+     * This method parses one data row and appends it to the columns
+     * @param line one line of the csv file without the line terminator
+     * @param lineNumber line of the file, used in error messages
+     * @param columns columns to append the row to
+     * @throws CrimeDataFormatException if the row does not have 20 numeric fields after its region
+     */
+    public void parse(CharSequence line, long lineNumber, CrimeColumns columns) {
+        this.chars = line;
+        this.bytes = null;
+        this.pos = 0;
+        this.end = line.length();
+        parseRow(lineNumber, columns);
+    } // end parse
+
+    /**
+     * This method parses one data row stored as ASCII bytes and appends it to the columns
+     * @param buffer bytes of the file, read with absolute gets so its position is not changed
+     * @param start index of the first byte of the line
+     * @param end index after the last byte of the line, not including the line terminator
+     * @param lineNumber line of the file, used in error messages
+     * @param columns columns to append the row to
+     * @throws CrimeDataFormatException if the row does not have 20 numeric fields after its region
+     */
+    public void parse(ByteBuffer buffer, int start, int end, long lineNumber, CrimeColumns columns) {
+        this.chars = null;
+        this.bytes = buffer;
+        this.pos = start;
+        this.end = end;
+        parseRow(lineNumber, columns);
+    } // end parse
+
+    /**
+     * This method parses one whole number field of a data row stored as ASCII bytes, skipping the region
+     * and the fields before it without converting them
+     * @param buffer bytes of the file, read with absolute gets so its position is not changed
+     * @param start index of the first byte of the line
+     * @param end index after the last byte of the line, not including the line terminator
+     * @param lineNumber line of the file, used in error messages
+     * @param column whole number column to parse
+     * @return int value of the field
+     * @throws CrimeDataFormatException if the field is not a number, the row must have every field
+     */
+    public int parseInt(ByteBuffer buffer, int start, int end, long lineNumber, CrimeColumn column) {
+        seekField(buffer, start, end, column);
+        return parseInt(lineNumber, column.ordinal() + 1);
+    } // end parseInt
+
+    /**
+     * This method parses one rate field of a data row stored as ASCII bytes, skipping the region and
+     * the fields before it without converting them
+     * @param buffer bytes of the file, read with absolute gets so its position is not changed
+     * @param start index of the first byte of the line
+     * @param end index after the last byte of the line, not including the line terminator
+     * @param lineNumber line of the file, used in error messages
+     * @param column rate column to parse
+     * @return double value of the field
+     * @throws CrimeDataFormatException if the field is not a number, the row must have every field
+     */
+    public double parseRate(ByteBuffer buffer, int start, int end, long lineNumber, CrimeColumn column) {
+        seekField(buffer, start, end, column);
+        return parseRate(lineNumber, column.ordinal() + 1);
+    } // end parseRate
+
+    /**
+     * This method returns the region code of a data row stored as ASCII bytes, adding its name to the
+     * dictionary if it is new
+     * @param buffer bytes of the file, read with absolute gets so its position is not changed
+     * @param start index of the first byte of the line
+     * @param end index after the last byte of the line, not including the line terminator
+     * @param lineNumber line of the file, used in error messages
+     * @param names dictionary of the region codes
+     * @return int code of the region, 0 for the national region if the row has no region field
+     */
+    public int parseRegion(ByteBuffer buffer, int start, int end, long lineNumber, RegionDictionary names) {
+        this.chars = null;
+        this.bytes = buffer;
+        this.pos = start;
+        this.end = end;
+        return parseRegion(lineNumber, names);
+    } // end parseRegion
+
+    /**
+     * This method moves pos to the start of a field of a row of bytes by counting commas
+     */
+    private void seekField(ByteBuffer buffer, int start, int end, CrimeColumn column) {
+        this.chars = null;
+        this.bytes = buffer;
+        this.pos = start;
+        this.end = end;
+
+        skipSpaces();
+        firstField = pos < end && startsRegion(at(pos)) ? 1 : 0;
+        for (int skip = column.ordinal() + firstField; skip > 0 && pos < end; pos++) {
+            if (buffer.get(pos) == ',') {
+                skip--;
+            }
+        }
+    } // end seekField
+
+    /**
+     * This method parses the region and 20 fields of the current line and appends them to the columns
+     */
+    private void parseRow(long lineNumber, CrimeColumns columns) {
+        int region = parseRegion(lineNumber, columns.getRegionNames());
+        int fields = COLUMNS.length + firstField;
+
+        for (int c = 0; c < COLUMNS.length; c++) {
+            CrimeColumn column = COLUMNS[c];
+
+            if (column.isRate()) {
+                rateValues[column.getSlot()] = parseRate(lineNumber, c + 1);
+            } else {
+                intValues[column.getSlot()] = parseInt(lineNumber, c + 1);
+            }
+
+            // every field but the last must be followed by a comma
+            if (c < COLUMNS.length - 1) {
+                if (pos >= end) {
+                    throw new CrimeDataFormatException(lineNumber, c + 1 + firstField,
+                            "expected " + fields + " columns but found " + (c + 1 + firstField));
+                }
+                pos++;
+            }
+        }
+
+        if (pos < end) {
+            throw new CrimeDataFormatException(lineNumber, fields + 1,
+                    "expected " + fields + " columns but found more");
+        }
+
+        columns.appendRow(intValues, rateValues, region);
+    } // end parseRow
+
+    /**
+     * This method parses the region field if the line starts with one and leaves pos after its comma
+     * @return int code of the region in the dictionary, 0 for the national region if there is no field
+     */
+    private int parseRegion(long lineNumber, RegionDictionary names) {
+        skipSpaces();
+        if (pos >= end || !startsRegion(at(pos))) {
+            firstField = 0;
+            return 0;
+        }
+
+        firstField = 1;
+        int length = 0;
+        int trimmed = 0;
+        while (pos < end && at(pos) != ',') {
+            char c = at(pos);
+            if (c > 0x7f) {
+                // bytes are read one at a time, a name of several byte characters would differ by mode
+                throw new CrimeDataFormatException(lineNumber, 1, "Region is not ASCII");
+            }
+            if (length == regionChars.length) {
+                regionChars = Arrays.copyOf(regionChars, length * 2);
+            }
+            regionChars[length++] = c;
+            if (!isSpace(c)) {
+                trimmed = length;
+            }
+            pos++;
+        }
+        if (pos >= end) {
+            throw new CrimeDataFormatException(lineNumber, 1,
+                    "expected " + (COLUMNS.length + 1) + " columns but found 1");
+        }
+        pos++;
+        return names.code(regionChars, trimmed);
+    } // end parseRegion
+
+    /**
+     * This method checks if the first character of a row starts a region field, a letter or any
+     * character that is not ASCII so a name that is not ASCII is reported instead of read as a number
+     * @param c first character of the row after any spaces
+     * @return true if the row starts with a region name
+     */
+    static boolean startsRegion(char c) {
+        return c > 0x7f || Character.isLetter(c);
+    }
+
+    /**
+     * This method returns the character at an index of the current line
+     */
+    private char at(int index) {
+        if (bytes != null) {
+            return (char) (bytes.get(index) & 0xff);
+        }
+        return chars.charAt(index);
+    }
+
+    /**
+     * This method parses a whole number field starting at pos and leaves pos on the comma that ends it
+     */
+    private int parseInt(long lineNumber, int columnNumber) {
+        skipSpaces();
+
+        boolean negative = false;
+        if (pos < end && at(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        while (pos < end) {
+            char c = at(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new CrimeDataFormatException(lineNumber, columnNumber + firstField,
+                        COLUMNS[columnNumber - 1].getHeader() + " is too large");
+            }
+            digits++;
+            pos++;
+        }
+
+        endField(lineNumber, columnNumber, digits);
+        return (int) (negative ? -value : value);
+    } // end parseInt
+
+    /**
+     * This method parses a decimal field starting at pos and leaves pos on the comma that ends it.
+     * Values with up to 15 digits are built from the digits and divided by a power of ten, which gives
+     * the same result as Double.parseDouble, longer values fall back to Double.parseDouble.
+     */
+    private double parseRate(long lineNumber, int columnNumber) {
+        skipSpaces();
+        int start = pos;
+
+        boolean negative = false;
+        if (pos < end && at(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean point = false;
+        while (pos < end) {
+            char c = at(pos);
+            if (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                digits++;
+                if (point) {
+                    decimals++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+
+        // exponents and very long values are left to the JDK
+        if (pos < end && (at(pos) == 'e' || at(pos) == 'E') || digits > MAX_EXACT_DIGITS) {
+            return parseRateSlow(start, lineNumber, columnNumber);
+        }
+
+        endField(lineNumber, columnNumber, digits);
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    } // end parseRate
+
+    /**
+     * This method parses a decimal field with Double.parseDouble, only used for unusual values
+     */
+    private double parseRateSlow(int start, long lineNumber, int columnNumber) {
+        pos = start;
+        String field = readField();
+        try {
+            return Double.parseDouble(field);
+        } catch (NumberFormatException e) {
+            throw new CrimeDataFormatException(lineNumber, columnNumber + firstField,
+                    COLUMNS[columnNumber - 1].getHeader() + " is not a number: '" + field + "'");
+        }
+    } // end parseRateSlow
+
+    /**
+     * This method checks that a field had digits and that only spaces follow them before the comma
+     */
+    private void endField(long lineNumber, int columnNumber, int digits) {
+        int digitsEnd = pos;
+        skipSpaces();
+
+        if (digits == 0 || (pos < end && at(pos) != ',')) {
+            // show the rest of the field after the digits
+            pos = digitsEnd;
+            String field = readField();
+            throw new CrimeDataFormatException(lineNumber, columnNumber + firstField,
+                    COLUMNS[columnNumber - 1].getHeader() + " is not a number"
+                            + (field.isEmpty() ? "" : ": unexpected '" + field + "'"));
+        }
+    } // end endField
+
+    /**
+     * This method copies the characters from pos to the next comma into a String, only used for
+     * unusual values and error messages
+     */
+    private String readField() {
+        StringBuilder field = new StringBuilder();
+        while (pos < end && at(pos) != ',') {
+            field.append(at(pos));
+            pos++;
+        }
+        return field.toString().trim();
+    }
+
+    /**
+     * This method moves pos past spaces, tabs and carriage returns
+     */
+    private void skipSpaces() {
+        while (pos < end && isSpace(at(pos))) {
+            pos++;
+        }
+    }
+
+    /**
+     * This method checks for the characters that are ignored around a field, including the byte order
+     * mark some editors write at the start of a file
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\uFEFF';
+    }
+} // end class
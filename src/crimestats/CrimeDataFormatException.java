@@ -0,0 +1,55 @@
+package crimestats;
+
+/**
+ * file:    CrimeDataFormatException.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeDataFormatException is thrown when a row of the crime stats csv file cannot be parsed.
+ * It records the line of the file and the column of the row where parsing stopped.
+ */
+public class CrimeDataFormatException extends IllegalArgumentException {
+    // class fields
+
+    private static final long serialVersionUID = 1L;
+
+    private final long lineNumber;
+    private final int columnNumber;
+    private final String reason;
+
+    /**
+     * constructor builds the message from the position and the reason
+     * @param lineNumber line of the file, starting at 1
+     * @param columnNumber column of the row, starting at 1
+     * @param reason description of the problem
+     */
+    public CrimeDataFormatException(long lineNumber, int columnNumber, String reason) {
+        super("line " + lineNumber + ", column " + columnNumber + ": " + reason);
+        this.lineNumber = lineNumber;
+        this.columnNumber = columnNumber;
+        this.reason = reason;
+    }
+
+    /**
+     * getter method to get the line of the file that could not be parsed
+     * @return long line number starting at 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * getter method to get the column of the row that could not be parsed
+     * @return int column number starting at 1
+     */
+    public int getColumnNumber() {
+        return columnNumber;
+    }
+
+    /**
+     * getter method to get the description of the problem without the position
+     * @return String reason
+     */
+    public String getReason() {
+        return reason;
+    }
+} // end class
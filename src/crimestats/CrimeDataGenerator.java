@@ -0,0 +1,231 @@
+package crimestats;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * file:    CrimeDataGenerator.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeDataGenerator writes synthetic crime stats files with the same header and 20 columns
+ * as Crime.csv for load testing. Rows are written year by year with one row per region in each year,
+ * so the file stays sorted by year. Every region starts from the 1994 national rates scaled up or down
+ * and drifts from year to year, counts are derived from the rates and population, and the totals and
+ * their rates are the sums of the crimes they contain, like the real data. With --named-regions each
+ * row starts with a Region column naming its region, Region 1 to Region n. Rows are streamed through
+ * an AsciiWriter so files of any size can be written in constant memory.
+ *
+ * usage: CrimeDataGenerator file rows [--regions=n] [--named-regions] [--start-year=year] [--seed=n]
+ */
+public class CrimeDataGenerator {
+    // class fields
+
+    // header of Crime.csv, including the trailing spaces of some column names
+    static final String HEADER = "Year,Population,Violent crime,Violent crime rate,"
+            + "Murder and nonnegligent manslaughter,Murder and nonnegligent manslaughter rate,Rape,Rape rate,"
+            + "Robbery,Robbery rate,Aggravated assault,Aggravated assault rate,Property crime,"
+            + "Property crime rate ,Burglary,Burglary rate,Larceny-theft,Larceny-theft rate ,"
+            + "Motor vehicle theft,Motor vehicle theft rate ";
+
+    // 1994 national rates per 100,000 people for murder, rape, robbery, assault, burglary, theft and
+    // vehicle theft, the first four are violent crimes and the last three property crimes
+    private static final double[] START_RATES = {9.0, 39.3, 237.8, 427.6, 1042.1, 3026.9, 591.3};
+    private static final int VIOLENT_CRIMES = 4;
+
+    // 1994 national population, a single region starts here
+    private static final long NATIONAL_POPULATION = 260327021L;
+
+    private final int regions;
+    private final boolean namedRegions;
+    private final Random random;
+
+    // state of each region, carried from one year to the next
+    private final long[] basePopulation;
+    private final long[] population;
+    private final double[][] baseRates;
+    private final double[][] rates;
+
+    // counts of the seven crimes for the row being written
+    private final long[] counts = new long[START_RATES.length];
+
+    /**
+     * constructor sets up the starting population and rates of each region, without a region column
+     * @param regions number of regions written for each year
+     * @param seed seed for the random numbers, the same seed writes the same file
+     */
+    public CrimeDataGenerator(int regions, long seed) {
+        this(regions, false, seed);
+    }
+
+    /**
+     * constructor sets up the starting population and rates of each region
+     * @param regions number of regions written for each year
+     * @param namedRegions true to start each row with the name of its region
+     * @param seed seed for the random numbers, the same seed writes the same file
+     */
+    public CrimeDataGenerator(int regions, boolean namedRegions, long seed) {
+        this.regions = regions;
+        this.namedRegions = namedRegions;
+        this.random = new Random(seed);
+        this.basePopulation = new long[regions];
+        this.population = new long[regions];
+        this.baseRates = new double[regions][START_RATES.length];
+        this.rates = new double[regions][START_RATES.length];
+
+        for (int r = 0; r < regions; r++) {
+            // a single region looks like the national data, several regions look like states
+            basePopulation[r] = regions == 1 ? NATIONAL_POPULATION : 500000 + (long) (random.nextDouble() * 40000000);
+            population[r] = basePopulation[r];
+            double scale = regions == 1 ? 1.0 : 0.5 + random.nextDouble();
+            for (int c = 0; c < START_RATES.length; c++) {
+                baseRates[r][c] = START_RATES[c] * scale;
+                rates[r][c] = baseRates[r][c];
+            }
+        }
+    }
+
+    /**
+     * Main method writes a synthetic file, see the class comment for the arguments
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("usage: CrimeDataGenerator file rows [--regions=n] [--named-regions] "
+                    + "[--start-year=year] [--seed=n]");
+            System.exit(1);
+        }
+
+        int regions = 1;
+        boolean namedRegions = false;
+        int startYear = 1994;
+        long seed = 1;
+        long rows = 0;
+
+        try {
+            rows = Long.parseLong(args[1]);
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].startsWith("--regions=")) {
+                    regions = Integer.parseInt(args[i].substring("--regions=".length()));
+                } else if (args[i].equals("--named-regions")) {
+                    namedRegions = true;
+                } else if (args[i].startsWith("--start-year=")) {
+                    startYear = Integer.parseInt(args[i].substring("--start-year=".length()));
+                } else if (args[i].startsWith("--seed=")) {
+                    seed = Long.parseLong(args[i].substring("--seed=".length()));
+                } else {
+                    System.err.println("Error: unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error: not a number " + e.getMessage());
+            System.exit(1);
+        }
+
+        if (rows < 0 || regions < 1) {
+            System.err.println("Error: rows must not be negative and regions must be at least 1");
+            System.exit(1);
+        }
+
+        Instant start = Instant.now();
+        try {
+            new CrimeDataGenerator(regions, namedRegions, seed).write(Paths.get(args[0]), rows, startYear);
+        } catch (IOException e) {
+            System.err.println("Error writing file: " + e.getMessage());
+            System.exit(1);
+        }
+
+        Duration elapsed = Duration.between(start, Instant.now());
+        System.out.println("Wrote " + rows + " rows to " + args[0] + " in " + elapsed.toMillis() + " ms");
+    } // end main
+
+    /**
+     * This method writes the header and the rows to a file, replacing it if it exists
+     * @param file path of the file
+     * @param rows number of data rows
+     * @param startYear year of the first rows
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file, long rows, int startYear) throws IOException {
+        try (AsciiWriter out = new AsciiWriter(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            if (namedRegions) {
+                out.write("Region,");
+            }
+            out.write(HEADER).write('\n');
+
+            int year = startYear;
+            for (long row = 0; row < rows; row++) {
+                int region = (int) (row % regions);
+                if (row > 0 && region == 0) {
+                    year++;
+                    nextYear();
+                }
+                writeRow(out, year, region);
+            }
+        }
+    } // end write
+
+    /**
+     * This method moves every region forward one year. Population grows about 1% a year and rates move
+     * a few percent, both are pulled back toward their starting values so long files stay realistic.
+     */
+    private void nextYear() {
+        for (int r = 0; r < regions; r++) {
+            double growth = 0.009 + random.nextGaussian() * 0.004;
+            if (population[r] > basePopulation[r] * 2) {
+                growth = -Math.abs(growth);
+            }
+            population[r] = Math.max(1000, (long) (population[r] * (1 + growth)));
+
+            for (int c = 0; c < START_RATES.length; c++) {
+                double drift = 0.1 * (baseRates[r][c] - rates[r][c]) + random.nextGaussian() * 0.04 * rates[r][c];
+                rates[r][c] = Math.max(0.01, rates[r][c] + drift);
+            }
+        }
+    } // end nextYear
+
+    /**
+     * This method writes one row in the Crime.csv column order
+     */
+    private void writeRow(AsciiWriter out, int year, int region) throws IOException {
+        long people = population[region];
+        long violent = 0;
+        long property = 0;
+
+        for (int c = 0; c < START_RATES.length; c++) {
+            counts[c] = Math.round(rates[region][c] * people / 100000.0);
+            if (c < VIOLENT_CRIMES) {
+                violent += counts[c];
+            } else {
+                property += counts[c];
+            }
+        }
+
+        if (namedRegions) {
+            out.write("Region ").writeLong(region + 1).write(',');
+        }
+        out.writeLong(year).write(',').writeLong(people);
+        writeCount(out, violent, people);
+        for (int c = 0; c < VIOLENT_CRIMES; c++) {
+            writeCount(out, counts[c], people);
+        }
+        writeCount(out, property, people);
+        for (int c = VIOLENT_CRIMES; c < START_RATES.length; c++) {
+            writeCount(out, counts[c], people);
+        }
+        out.write('\n');
+    } // end writeRow
+
+    /**
+     * This method writes a count and its rate per 100,000 people with two decimals
+     */
+    private static void writeCount(AsciiWriter out, long count, long people) throws IOException {
+        out.write(',').writeLong(count).write(',').writeFixed(count * 100000.0 / people, 2);
+    }
+} // end class
@@ -0,0 +1,162 @@
+package crimestats;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * file:    CrimeDataset.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeDataset is one published state of the data of a CrimeStats: columns that are never
+ * changed again and the summaries built from them on first use, the RateSummary, the YearIndex, the
+ * sorted rate columns, the KllSketch of each rate column and the row views. Appending rows or reloading the file builds a new dataset and
+ * publishes it in one volatile write, so a thread answering a query reads one dataset without taking a
+ * lock and never sees a half loaded file or a row half appended. A dataset made by appending rows keeps
+ * the summary and index of the dataset before it, so they are extended with the new rows instead of
+ * built again.
+ */
+public class CrimeDataset {
+    // class fields
+
+    private final CrimeColumns columns;
+    // summary and index of the rows these columns start with, extended on first use, null if none
+    private final RateSummary previousSummary;
+    private final YearIndex previousIndex;
+
+    // built on first use, volatile so a summary built by one thread is seen complete by the others.
+    // Two threads may build the same summary at once, they build equal ones and either is kept.
+    private volatile RateSummary rateSummary = null;
+    private volatile YearIndex yearIndex = null;
+    // sorted copy of each rate column for percentiles, indexed by rate slot
+    private final AtomicReferenceArray<double[]> sortedRates = new AtomicReferenceArray<>(CrimeColumn.RATE_COLUMNS);
+    // sketch of each rate column for estimated percentiles, indexed by rate slot
+    private final AtomicReferenceArray<KllSketch> rateSketches = new AtomicReferenceArray<>(CrimeColumn.RATE_COLUMNS);
+    // row views of the columns, index 0 is the header row and is null
+    private volatile USCrimeStats[] rows = null;
+
+    /**
+     * constructor publishes columns that are completely loaded, such as a file that was just read
+     * @param columns columns that are not changed after this
+     */
+    CrimeDataset(CrimeColumns columns) {
+        this(columns, null, null);
+    }
+
+    /**
+     * constructor for the dataset after rows were appended to another
+     */
+    private CrimeDataset(CrimeColumns columns, RateSummary previousSummary, YearIndex previousIndex) {
+        this.columns = columns;
+        this.previousSummary = previousSummary;
+        this.previousIndex = previousIndex;
+    }
+
+    /**
+     * This method returns a new dataset with rows appended, this dataset is not changed
+     * @param appended columns holding the new rows
+     * @return CrimeDataset holding the rows of this dataset followed by the new rows
+     */
+    CrimeDataset withRows(CrimeColumns appended) {
+        RateSummary summary = rateSummary;
+        YearIndex index = yearIndex;
+        return new CrimeDataset(columns.withRows(appended),
+                summary != null ? summary : previousSummary, index != null ? index : previousIndex);
+    }
+
+    /**
+     * getter method to get the columns of the dataset, which are not changed
+     * @return CrimeColumns columns
+     */
+    public CrimeColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * getter method to get the number of rows
+     * @return int number of rows
+     */
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * This method returns the lowest and highest value of every rate column, computed in one pass the
+     * first time it is needed, or over only the appended rows when the dataset was made by appending
+     * @param parallelism decides whether the rows are split across threads
+     * @return RateSummary of the dataset
+     */
+    RateSummary getRateSummary(Parallelism parallelism) {
+        RateSummary summary = rateSummary;
+        if (summary == null) {
+            summary = previousSummary == null ? columns.summarizeRates(parallelism)
+                    : columns.summarizeRates(previousSummary, parallelism);
+            rateSummary = summary;
+        }
+        return summary;
+    }
+
+    /**
+     * This method returns the index of the rows by year, built the first time it is needed, or
+     * extended from the index of the rows before them when the dataset was made by appending
+     * @return YearIndex of the dataset
+     */
+    YearIndex getYearIndex() {
+        YearIndex index = yearIndex;
+        if (index == null) {
+            index = previousIndex == null ? new YearIndex(columns) : previousIndex.extend(columns);
+            yearIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * This method returns the values of a rate column from lowest to highest, sorted the first time
+     * they are needed
+     * @param column rate column
+     * @param parallelism decides whether the sort is split across threads
+     * @return double[] sorted values, not to be changed
+     */
+    double[] getSortedRates(CrimeColumn column, Parallelism parallelism) {
+        double[] values = sortedRates.get(column.getSlot());
+        if (values == null) {
+            values = columns.sortedRates(column, parallelism);
+            sortedRates.set(column.getSlot(), values);
+        }
+        return values;
+    }
+
+    /**
+     * This method estimates a percentile of a rate column from a KllSketch of its values, built the
+     * first time it is needed in one pass that keeps a few thousand values instead of a sorted copy
+     * @param column rate column
+     * @param fraction fraction of the values from 0 to 1, 0.5 for the median
+     * @return double estimated value, or NaN if there are no rows
+     */
+    double getApproxPercentile(CrimeColumn column, double fraction) {
+        KllSketch sketch = rateSketches.get(column.getSlot());
+        if (sketch == null) {
+            sketch = columns.sketchRates(column);
+            rateSketches.set(column.getSlot(), sketch);
+        }
+        // an estimate sorts the levels of the sketch, so one thread reads it at a time
+        synchronized (sketch) {
+            return sketch.quantile(fraction);
+        }
+    }
+
+    /**
+     * This method returns a view of every row, index 0 is the header row and is null so the first
+     * year is at index 1. The array is shared by every caller and must not be changed.
+     * @return USCrimeStats[] row views
+     */
+    USCrimeStats[] getRows() {
+        USCrimeStats[] views = rows;
+        if (views == null) {
+            views = new USCrimeStats[columns.size() + 1];
+            for (int i = 1; i < views.length; i++) {
+                views[i] = new USCrimeStats(columns, i - 1);
+            }
+            rows = views;
+        }
+        return views;
+    }
+} // end class
@@ -0,0 +1,95 @@
+package crimestats;
+
+/**
+ * file:    CrimeMetric.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeMetric lists the nine crimes in the crime stats file. Each crime has a count column,
+ * a rate column and the names used by the menu, so queries resolve the columns once instead of
+ * matching option strings for every row.
+ */
+public enum CrimeMetric {
+    VIOLENT_CRIME("Violent Crime", "violent crime", "violent crimes",
+            CrimeColumn.VIOLENT_CRIME, CrimeColumn.VIOLENT_CRIME_RATE),
+    MURDER("Murder", "murder", "murders", CrimeColumn.MURDER, CrimeColumn.MURDER_RATE),
+    RAPE("Rape", "rape", "rapes", CrimeColumn.RAPE, CrimeColumn.RAPE_RATE),
+    ROBBERY("Robbery", "robbery", "robberies", CrimeColumn.ROBBERY, CrimeColumn.ROBBERY_RATE),
+    ASSAULT("Assault", "assault", "assaults", CrimeColumn.ASSAULT, CrimeColumn.ASSAULT_RATE),
+    PROPERTY_CRIME("Property Crime", "property crime", "property crimes",
+            CrimeColumn.PROPERTY_CRIME, CrimeColumn.PROPERTY_CRIME_RATE),
+    BURGLARY("Burglary", "burglary", "burglaries", CrimeColumn.BURGLARY, CrimeColumn.BURGLARY_RATE),
+    THEFT("Theft", "theft", "thefts", CrimeColumn.THEFT, CrimeColumn.THEFT_RATE),
+    VEHICLE_THEFT("Vehicle", "vehicle theft", "vehicle thefts",
+            CrimeColumn.VEHICLE_THEFT, CrimeColumn.VEHICLE_THEFT_RATE);
+
+    private final String option;
+    private final String displayName;
+    private final String pluralName;
+    private final CrimeColumn countColumn;
+    private final CrimeColumn rateColumn;
+
+    CrimeMetric(String option, String displayName, String pluralName,
+                CrimeColumn countColumn, CrimeColumn rateColumn) {
+        this.option = option;
+        this.displayName = displayName;
+        this.pluralName = pluralName;
+        this.countColumn = countColumn;
+        this.rateColumn = rateColumn;
+    }
+
+    /**
+     * getter method to get the option string accepted by getMaxRate and getMinRate, such as "Vehicle"
+     * @return String option
+     */
+    public String getOption() {
+        return option;
+    }
+
+    /**
+     * getter method to get the name of the crime for display, such as "vehicle theft"
+     * @return String display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * getter method to get the plural name of the crime for display, such as "vehicle thefts"
+     * @return String plural name
+     */
+    public String getPluralName() {
+        return pluralName;
+    }
+
+    /**
+     * getter method to get the column holding the number of crimes
+     * @return CrimeColumn count column
+     */
+    public CrimeColumn getCountColumn() {
+        return countColumn;
+    }
+
+    /**
+     * getter method to get the column holding the rate per 100,000 people
+     * @return CrimeColumn rate column
+     */
+    public CrimeColumn getRateColumn() {
+        return rateColumn;
+    }
+
+    /**
+     * This method finds the metric for an option string such as "Murder" or an enum name such as
+     * "vehicle_theft", ignoring case
+     * @param option option string or enum name
+     * @return CrimeMetric for the option
+     * @throws IllegalArgumentException if the option is not a crime
+     */
+    public static CrimeMetric fromOption(String option) {
+        for (CrimeMetric metric : values()) {
+            if (metric.option.equalsIgnoreCase(option) || metric.name().equalsIgnoreCase(option)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("unknown crime: " + option);
+    } // end fromOption
+} // end enum
@@ -0,0 +1,578 @@
+package crimestats;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * file:    CrimeQuery.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeQuery is one question asked of the loaded crime stats without the menu, written as
+ * name or name:argument and parsed once so it can be run many times. The queries are
+ *
+ *   A to U                 the menu options, A is population-change, B to T are max and min queries and
+ *                          U is the estimated median rate of every crime
+ *   population-change      percent and total population change between consecutive rows of each region
+ *   change:column          percent and total change of any column between consecutive rows of each
+ *                          region, column is a CrimeColumn name such as population or murder_rate
+ *   max:crime, min:crime   the year with the highest or lowest rate, crime is a CrimeMetric option
+ *                          such as murder or vehicle_theft, max:crime:from-to looks only at a range
+ *                          of years. The region of the row is given too when the data has regions,
+ *                          as it is for top, bottom and year rows
+ *   total:crime            the total count of a crime, total:crime:from-to over a range of years
+ *   top:crime:k            the k years with the highest rate of a crime, 10 if k is left out
+ *   bottom:crime:k         the k years with the lowest rate of a crime, 10 if k is left out
+ *   percentile:crime:p     the pth percentile of the rates of a crime, p from 0 to 100
+ *   median:crime           the median rate of a crime, the same as percentile:crime:50
+ *   approx-percentile:crime:p
+ *                          the pth percentile of the rates of a crime estimated with a KllSketch of the
+ *                          rates, without copying and sorting them, usually within 1% of the rows of
+ *                          the exact percentile
+ *   group:key              total count, rate of the totals and lowest, highest and mean rate of every
+ *                          crime for each group of rows, key is region, year or region-year, and
+ *                          group:key:crime reports only one crime
+ *   year:year              every column of the rows for a year
+ *   range:from-to          every column of the rows from one year to another, inclusive
+ *   stats:from-to          lowest, highest and mean rate and total count of every crime in a range of
+ *                          years, a range may also be a single year
+ *   count                  the number of rows
+ *
+ * Names are not case sensitive. Running a query returns a QueryResult.
+ */
+public class CrimeQuery {
+    // class fields
+
+    // menu options for the highest and lowest rate questions and the crime each one asks about
+    static final String HIGHEST_OPTIONS = "BCDEFGHIJ";
+    static final String LOWEST_OPTIONS = "KLMNOPRST";
+    static final CrimeMetric[] MENU_METRICS = {
+            CrimeMetric.MURDER, CrimeMetric.ROBBERY, CrimeMetric.VIOLENT_CRIME,
+            CrimeMetric.RAPE, CrimeMetric.ASSAULT, CrimeMetric.PROPERTY_CRIME,
+            CrimeMetric.BURGLARY, CrimeMetric.THEFT, CrimeMetric.VEHICLE_THEFT
+    };
+    // menu option for the estimated median rate of every crime
+    static final char MEDIAN_OPTION = 'U';
+
+    // kinds of query
+    private enum Kind { CHANGE, MAX, MIN, TOTAL, TOP, BOTTOM, PERCENTILE, APPROX_PERCENTILE, GROUP, YEARS, STATS, COUNT }
+
+    // number of rows of a top or bottom query when none is given
+    private static final int DEFAULT_TOP = 10;
+
+    private final String text;
+    private final Kind kind;
+    private final CrimeMetric metric;
+    // column of a change query
+    private final CrimeColumn column;
+    // first and last year of the query, every year unless a range is given
+    private final int fromYear;
+    private final int toYear;
+    // number of rows of a top or bottom query, percent of a percentile query
+    private final double amount;
+    // dimensions of a group query
+    private final GroupKey groupKey;
+    // what the query asks, built on first use by getCacheKey
+    private String cacheKey = null;
+
+    /**
+     * constructor for a parsed query over every year
+     */
+    private CrimeQuery(String text, Kind kind, CrimeMetric metric) {
+        this(text, kind, metric, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * constructor for a parsed top, bottom or percentile query, metric is null for an estimated
+     * percentile of every crime
+     */
+    private CrimeQuery(String text, Kind kind, CrimeMetric metric, double amount) {
+        this.text = text;
+        this.kind = kind;
+        this.metric = metric;
+        this.column = null;
+        this.fromYear = Integer.MIN_VALUE;
+        this.toYear = Integer.MAX_VALUE;
+        this.amount = amount;
+        this.groupKey = null;
+    }
+
+    /**
+     * constructor for a parsed change query
+     */
+    private CrimeQuery(String text, CrimeColumn column) {
+        this.text = text;
+        this.kind = Kind.CHANGE;
+        this.metric = null;
+        this.column = column;
+        this.fromYear = Integer.MIN_VALUE;
+        this.toYear = Integer.MAX_VALUE;
+        this.amount = 0;
+        this.groupKey = null;
+    }
+
+    /**
+     * constructor for a parsed group query, metric is null to report every crime
+     */
+    private CrimeQuery(String text, GroupKey groupKey, CrimeMetric metric) {
+        this.text = text;
+        this.kind = Kind.GROUP;
+        this.metric = metric;
+        this.column = null;
+        this.fromYear = Integer.MIN_VALUE;
+        this.toYear = Integer.MAX_VALUE;
+        this.amount = 0;
+        this.groupKey = groupKey;
+    }
+
+    /**
+     * constructor for a parsed query
+     */
+    private CrimeQuery(String text, Kind kind, CrimeMetric metric, int fromYear, int toYear) {
+        this.text = text;
+        this.kind = kind;
+        this.metric = metric;
+        this.column = null;
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        this.amount = 0;
+        this.groupKey = null;
+    }
+
+    /**
+     * This method parses the text of a query
+     * @param text query such as "B", "max:murder" or "year:2001"
+     * @return CrimeQuery for the text
+     * @throws IllegalArgumentException if the text is not a query
+     */
+    public static CrimeQuery parse(String text) {
+        String trimmed = text.trim();
+        int colon = trimmed.indexOf(':');
+        String name = (colon < 0 ? trimmed : trimmed.substring(0, colon)).trim().toLowerCase(Locale.ROOT);
+        String argument = colon < 0 ? null : trimmed.substring(colon + 1).trim();
+
+        // a single letter is a menu option
+        if (name.length() == 1 && argument == null) {
+            char option = Character.toUpperCase(name.charAt(0));
+            int highest = HIGHEST_OPTIONS.indexOf(option);
+            int lowest = LOWEST_OPTIONS.indexOf(option);
+            if (option == 'A') {
+                return new CrimeQuery(text, CrimeColumn.POPULATION);
+            } else if (highest >= 0) {
+                return new CrimeQuery(text, Kind.MAX, MENU_METRICS[highest]);
+            } else if (lowest >= 0) {
+                return new CrimeQuery(text, Kind.MIN, MENU_METRICS[lowest]);
+            } else if (option == MEDIAN_OPTION) {
+                return new CrimeQuery(text, Kind.APPROX_PERCENTILE, null, 50);
+            }
+            throw new IllegalArgumentException("unknown menu option: " + trimmed);
+        }
+
+        switch (name) {
+            case "population-change":
+                requireNoArgument(name, argument);
+                return new CrimeQuery(text, CrimeColumn.POPULATION);
+            case "change":
+                return new CrimeQuery(text, CrimeColumn.fromName(requireArgument(name, argument)));
+            case "count":
+                requireNoArgument(name, argument);
+                return new CrimeQuery(text, Kind.COUNT, null);
+            case "max":
+            case "min":
+            case "total":
+                // the crime may be followed by :from-to
+                String crime = requireArgument(name, argument);
+                int from = Integer.MIN_VALUE;
+                int to = Integer.MAX_VALUE;
+                int split = crime.indexOf(':');
+                if (split >= 0) {
+                    int[] crimeYears = parseRange(crime.substring(split + 1));
+                    from = crimeYears[0];
+                    to = crimeYears[1];
+                    crime = crime.substring(0, split).trim();
+                }
+                Kind kind = name.equals("max") ? Kind.MAX : name.equals("min") ? Kind.MIN : Kind.TOTAL;
+                return new CrimeQuery(text, kind, CrimeMetric.fromOption(crime), from, to);
+            case "top":
+            case "bottom":
+                // the crime may be followed by :k
+                String ranked = requireArgument(name, argument);
+                int k = DEFAULT_TOP;
+                int kSplit = ranked.indexOf(':');
+                if (kSplit >= 0) {
+                    k = parseRowCount(ranked.substring(kSplit + 1));
+                    ranked = ranked.substring(0, kSplit).trim();
+                }
+                return new CrimeQuery(text, name.equals("top") ? Kind.TOP : Kind.BOTTOM,
+                        CrimeMetric.fromOption(ranked), k);
+            case "percentile":
+                String percentile = requireArgument(name, argument);
+                int pSplit = percentile.indexOf(':');
+                if (pSplit < 0) {
+                    throw new IllegalArgumentException("percentile needs a percent, for example percentile:murder:95");
+                }
+                double percent = parsePercent(percentile.substring(pSplit + 1));
+                return new CrimeQuery(text, Kind.PERCENTILE,
+                        CrimeMetric.fromOption(percentile.substring(0, pSplit).trim()), percent);
+            case "approx-percentile":
+                String estimate = requireArgument(name, argument);
+                int eSplit = estimate.indexOf(':');
+                if (eSplit < 0) {
+                    throw new IllegalArgumentException(
+                            "approx-percentile needs a percent, for example approx-percentile:murder:95");
+                }
+                return new CrimeQuery(text, Kind.APPROX_PERCENTILE,
+                        CrimeMetric.fromOption(estimate.substring(0, eSplit).trim()),
+                        parsePercent(estimate.substring(eSplit + 1)));
+            case "median":
+                return new CrimeQuery(text, Kind.PERCENTILE, CrimeMetric.fromOption(requireArgument(name, argument)), 50);
+            case "group":
+                // the key may be followed by :crime
+                String group = requireArgument(name, argument);
+                CrimeMetric only = null;
+                int gSplit = group.indexOf(':');
+                if (gSplit >= 0) {
+                    only = CrimeMetric.fromOption(group.substring(gSplit + 1).trim());
+                    group = group.substring(0, gSplit);
+                }
+                return new CrimeQuery(text, GroupKey.fromName(group), only);
+            case "year":
+                int year = parseYear(requireArgument(name, argument));
+                return new CrimeQuery(text, Kind.YEARS, null, year, year);
+            case "range":
+                int[] range = parseRange(requireArgument(name, argument));
+                return new CrimeQuery(text, Kind.YEARS, null, range[0], range[1]);
+            case "stats":
+                int[] years = parseRange(requireArgument(name, argument));
+                return new CrimeQuery(text, Kind.STATS, null, years[0], years[1]);
+            default:
+                throw new IllegalArgumentException("unknown query: " + trimmed);
+        }
+    } // end parse
+
+    /**
+     * getter method to get the text the query was parsed from
+     * @return String query text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * This method returns what the query asks as a String, the same for every way of writing it, such
+     * as B and max:murder, used as the key of a QueryCache
+     * @return String cache key
+     */
+    public String getCacheKey() {
+        String key = cacheKey;
+        if (key == null) {
+            key = kind + ":" + metric + ":" + column + ":" + fromYear + ":" + toYear + ":" + amount + ":" + groupKey;
+            cacheKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * This method returns the name of the kind of query, such as max or top, used to group the
+     * latencies recorded by CrimeStatsMetrics
+     * @return String kind name in lower case
+     */
+    String getKindName() {
+        return kind.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * This method answers the query from the loaded data
+     * @param crime CrimeStats holding the data
+     * @return QueryResult with the answer
+     */
+    public QueryResult run(CrimeStats crime) {
+        CrimeColumns columns = crime.getColumns();
+
+        switch (kind) {
+            case CHANGE:
+                return changes(crime);
+            case MAX:
+            case MIN:
+                if (columns.size() == 0) {
+                    return QueryResult.failed(text, "no data for " + metric.getOption());
+                }
+                USCrimeStats row;
+                if (fromYear == Integer.MIN_VALUE && toYear == Integer.MAX_VALUE) {
+                    row = kind == Kind.MAX ? crime.getMaxRate(metric) : crime.getMinRate(metric);
+                } else {
+                    row = kind == Kind.MAX ? crime.getMaxRate(metric, fromYear, toYear)
+                            : crime.getMinRate(metric, fromYear, toYear);
+                    if (row == null) {
+                        return QueryResult.failed(text, "no data for " + metric.getOption() + " from "
+                                + fromYear + " to " + toYear);
+                    }
+                }
+                if (columns.hasRegions()) {
+                    QueryResult extreme = new QueryResult(text, "region", "year", "rate", "count");
+                    extreme.addRow(row.getRegion(), row.getYear(), row.getRate(metric), row.getCount(metric));
+                    return extreme;
+                }
+                QueryResult extreme = new QueryResult(text, "year", "rate", "count");
+                extreme.addRow(row.getYear(), row.getRate(metric), row.getCount(metric));
+                return extreme;
+            case TOTAL:
+                QueryResult total = new QueryResult(text, "total");
+                total.addRow(crime.getYearIndex().total(metric, fromYear, toYear));
+                return total;
+            case TOP:
+            case BOTTOM:
+                USCrimeStats[] ranked = kind == Kind.TOP ? crime.getTopRates(metric, (int) amount)
+                        : crime.getBottomRates(metric, (int) amount);
+                boolean regional = columns.hasRegions();
+                QueryResult top = regional ? new QueryResult(text, "rank", "region", "year", "rate", "count")
+                        : new QueryResult(text, "rank", "year", "rate", "count");
+                for (int i = 0; i < ranked.length; i++) {
+                    if (regional) {
+                        top.addRow(i + 1, ranked[i].getRegion(), ranked[i].getYear(), ranked[i].getRate(metric),
+                                ranked[i].getCount(metric));
+                    } else {
+                        top.addRow(i + 1, ranked[i].getYear(), ranked[i].getRate(metric), ranked[i].getCount(metric));
+                    }
+                }
+                return top;
+            case PERCENTILE:
+                if (columns.size() == 0) {
+                    return QueryResult.failed(text, "no data for " + metric.getOption());
+                }
+                QueryResult percentile = new QueryResult(text, "percentile", "rate");
+                percentile.addRow(amount, crime.getPercentile(metric, amount));
+                return percentile;
+            case APPROX_PERCENTILE:
+                if (columns.size() == 0) {
+                    return QueryResult.failed(text,
+                            "no data for " + (metric == null ? "any crime" : metric.getOption()));
+                }
+                return approxPercentiles(crime);
+            case GROUP:
+                return groups(crime.groupBy(groupKey));
+            case YEARS:
+                return yearRows(columns, crime.getYearIndex().rows(fromYear, toYear));
+            case STATS:
+                return rangeStats(crime.getYearIndex().rangeStats(fromYear, toYear));
+            default:
+                QueryResult count = new QueryResult(text, "rows");
+                count.addRow(columns.size());
+                return count;
+        }
+    } // end run
+
+    /**
+     * This method collects the change of the column between each row and the row before it in the same
+     * region, like menu option A, starting with the region when the data has regions
+     */
+    private QueryResult changes(CrimeStats crime) {
+        boolean regional = crime.getColumns().hasRegions();
+        QueryResult result = regional
+                ? new QueryResult(text, "region", "from_year", "to_year", "change_percent", "increase")
+                : new QueryResult(text, "from_year", "to_year", "change_percent", "increase");
+        try {
+            crime.forEachChange(column, (region, fromYear, toYear, percent, difference) -> {
+                Object increase = column.isRate() ? (Object) difference : (Object) (long) difference;
+                if (regional) {
+                    result.addRow(region, fromYear, toYear, percent, increase);
+                } else {
+                    result.addRow(fromYear, toYear, percent, increase);
+                }
+            });
+        } catch (IOException e) {
+            // adding to a result does not fail
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    } // end changes
+
+    /**
+     * This method estimates the percentile of the rates of the crime, or of every crime for menu option
+     * U, from sketches of the loaded rates
+     */
+    private QueryResult approxPercentiles(CrimeStats crime) {
+        if (metric != null) {
+            QueryResult result = new QueryResult(text, "percentile", "rate");
+            result.addRow(amount, crime.getApproxPercentile(metric, amount));
+            return result;
+        }
+        QueryResult result = new QueryResult(text, "crime", "percentile", "rate");
+        for (CrimeMetric m : CrimeMetric.values()) {
+            result.addRow(m.name().toLowerCase(Locale.ROOT), amount, crime.getApproxPercentile(m, amount));
+        }
+        return result;
+    } // end approxPercentiles
+
+    /**
+     * This method returns one row for each group and crime, with the region and year of the group when
+     * the groups are split by them
+     */
+    private QueryResult groups(GroupedStats stats) {
+        GroupKey key = stats.getKey();
+        List<String> fields = new ArrayList<>();
+        if (key.hasRegion()) {
+            fields.add("region");
+        }
+        if (key.hasYear()) {
+            fields.add("year");
+        }
+        fields.addAll(Arrays.asList("crime", "rows", "total", "rate", "mean_rate", "min_rate", "max_rate"));
+
+        QueryResult result = new QueryResult(text, fields.toArray(new String[0]));
+        CrimeMetric[] metrics = metric == null ? CrimeMetric.values() : new CrimeMetric[] {metric};
+        for (int g = 0; g < stats.size(); g++) {
+            for (CrimeMetric m : metrics) {
+                Object[] values = new Object[fields.size()];
+                int v = 0;
+                if (key.hasRegion()) {
+                    values[v++] = stats.getRegion(g);
+                }
+                if (key.hasYear()) {
+                    values[v++] = stats.getYear(g);
+                }
+                values[v++] = m.name().toLowerCase(Locale.ROOT);
+                values[v++] = stats.getRowCount(g);
+                values[v++] = stats.getSum(m, g);
+                values[v++] = stats.getRate(m, g);
+                values[v++] = stats.getMean(m, g);
+                values[v++] = stats.getMin(m, g);
+                values[v] = stats.getMax(m, g);
+                result.addRow(values);
+            }
+        }
+        return result;
+    } // end groups
+
+    /**
+     * This method returns every column of the rows found in the year index, starting with the region
+     * when the data has regions
+     */
+    private QueryResult yearRows(CrimeColumns columns, int[] rows) {
+        CrimeColumn[] all = CrimeColumn.values();
+        int first = columns.hasRegions() ? 1 : 0;
+        String[] fields = new String[all.length + first];
+        if (first == 1) {
+            fields[0] = "region";
+        }
+        for (int c = 0; c < all.length; c++) {
+            fields[c + first] = all[c].name().toLowerCase(Locale.ROOT);
+        }
+
+        QueryResult result = new QueryResult(text, fields);
+        for (int row : rows) {
+            Object[] values = new Object[fields.length];
+            if (first == 1) {
+                values[0] = columns.getRegionName(row);
+            }
+            for (int c = 0; c < all.length; c++) {
+                values[c + first] = all[c].isRate() ? (Object) columns.getRate(all[c], row) : (Object) columns.getInt(all[c], row);
+            }
+            result.addRow(values);
+        }
+        return result;
+    } // end yearRows
+
+    /**
+     * This method returns one row of statistics for each crime in a range of years
+     */
+    private QueryResult rangeStats(RangeStats stats) {
+        QueryResult result = new QueryResult(text, "crime", "rows", "min_rate", "max_rate", "mean_rate", "total");
+        for (CrimeMetric metric : CrimeMetric.values()) {
+            result.addRow(metric.name().toLowerCase(Locale.ROOT), stats.getRowCount(), stats.getMin(metric),
+                    stats.getMax(metric), stats.getMean(metric), stats.getSum(metric));
+        }
+        return result;
+    } // end rangeStats
+
+    /**
+     * This method parses the year argument of a query
+     */
+    private static int parseYear(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a year: " + text);
+        }
+    }
+
+    /**
+     * This method parses the number of rows of a top or bottom query
+     */
+    private static int parseRowCount(String text) {
+        try {
+            int count = Integer.parseInt(text.trim());
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("not a number of rows: " + text);
+    }
+
+    /**
+     * This method parses the percent of a percentile query
+     */
+    private static double parsePercent(String text) {
+        try {
+            double percent = Double.parseDouble(text.trim());
+            if (percent >= 0 && percent <= 100) {
+                return percent;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("not a percent from 0 to 100: " + text);
+    }
+
+    /**
+     * This method parses a range of years written from-to, or a single year
+     */
+    private static int[] parseRange(String range) {
+        int dash = range.indexOf('-', 1);
+        if (dash < 0) {
+            int year = parseYear(range);
+            return new int[] {year, year};
+        }
+        return new int[] {parseYear(range.substring(0, dash)), parseYear(range.substring(dash + 1))};
+    }
+
+    /**
+     * This method checks that a query that takes an argument has one
+     */
+    private static String requireArgument(String name, String argument) {
+        if (argument == null || argument.isEmpty()) {
+            String example;
+            switch (name) {
+                case "year":
+                    example = "2001";
+                    break;
+                case "range":
+                case "stats":
+                    example = "1995-2000";
+                    break;
+                case "change":
+                    example = "population";
+                    break;
+                default:
+                    example = "murder";
+                    break;
+            }
+            throw new IllegalArgumentException(name + " needs an argument, for example " + name + ":" + example);
+        }
+        return argument;
+    }
+
+    /**
+     * This method checks that a query without arguments was not given one
+     */
+    private static void requireNoArgument(String name, String argument) {
+        if (argument != null) {
+            throw new IllegalArgumentException(name + " does not take an argument");
+        }
+    }
+} // end class
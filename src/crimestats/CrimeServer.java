@@ -0,0 +1,236 @@
+package crimestats;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * file:    CrimeServer.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeServer loads the crime stats file once and answers CrimeQuery queries over HTTP with
+ * json, so dashboards do not start a JVM and read the file for every question. Every request answers
+ * its queries from one CrimeDataset pinned when it starts, so a reload or rows appended while it runs
+ * do not mix old and new rows in one answer. Queries are asked in two ways
+ *
+ *   GET /query?q=max:murder&q=A    one or more queries, answered with a json array like batch mode
+ *   GET /max/murder                a path of the form /name or /name/argument, answered with one
+ *                                  json object, for example /population-change, /range/1995-2000,
+ *                                  /total/robbery/2000-2010 or /approx-percentile/murder/95
+ *   GET /metrics                   the CrimeStatsMetrics of the data as json, load times and the
+ *                                  latency of each kind of query
+ *
+ * A query that cannot be answered returns status 400 with an error object. Results are kept in the
+ * QueryCache of the data, so a dashboard asking the same questions is answered without a scan. Requests are handled on
+ * virtual threads when the JVM has them and on a fixed pool of platform threads otherwise.
+ *
+ * usage: CrimeServer file [--ingest=mode] [--snapshot] [--storage=name] [--port=n] [--threads=n] [--parallelism=n]
+ *        [--parallel-threshold=rows] [--cache-size=n] [--jmx] [--metrics=file]
+ *
+ * --storage=file always creates the CrimeSnapshot of the file, file.snapshot next to it, even without
+ * --snapshot, since the columns are read from the mapped snapshot.
+ */
+public class CrimeServer {
+    // class fields
+
+    private static final int DEFAULT_PORT = 8080;
+
+    private final CrimeStats crime;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * constructor binds the server to a port, it does not answer requests until start is called
+     * @param crime loaded data to answer queries from
+     * @param port port to listen on, 0 picks a free port
+     * @param threads number of platform threads used when virtual threads are not available
+     * @throws IOException if the port cannot be bound
+     */
+    public CrimeServer(CrimeStats crime, int port, int threads) throws IOException {
+        this.crime = crime;
+        this.executor = newExecutor(threads);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Main method loads the file and runs the server until the JVM is stopped, see the class comment
+     * for the arguments
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors() * 8;
+
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--port=")) {
+                    port = Integer.parseInt(arg.substring("--port=".length()));
+                } else if (arg.startsWith("--threads=")) {
+                    threads = Integer.parseInt(arg.substring("--threads=".length()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error: not a number " + e.getMessage());
+            System.exit(1);
+        }
+
+        CrimeStats crime = new CrimeStats(args);
+        // build the year index before the first request instead of during it
+        crime.getYearIndex();
+
+        try {
+            CrimeServer server = new CrimeServer(crime, port, Math.max(threads, 1));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            server.start();
+            System.out.println("Serving " + crime.getColumns().size() + " rows on port " + server.getPort());
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            System.exit(1);
+        }
+    } // end main
+
+    /**
+     * This method starts answering requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * This method stops the server, waiting up to a second for requests being answered
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * getter method to get the port the server listens on
+     * @return int port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * This method answers one request
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, error("method " + exchange.getRequestMethod() + " not allowed"));
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            CrimeStats data = crime.pin();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            AsciiWriter out = new AsciiWriter(body, 4096);
+            int status = 200;
+
+            if (path.equals("/metrics")) {
+                data.getMetrics().writeJson(out);
+            } else if (path.equals("/query")) {
+                List<QueryResult> results = new ArrayList<>();
+                for (String text : queryParameters(exchange.getRequestURI().getRawQuery())) {
+                    QueryResult result = answer(data, text);
+                    status = result.isError() ? 400 : status;
+                    results.add(result);
+                }
+                QueryFormat.JSON.write(results, out);
+            } else {
+                // /name/argument is the query name:argument, /max/murder/1998-2006 is max:murder:1998-2006
+                String text = path.substring(1).replace('/', ':');
+                QueryResult result = answer(data, text);
+                status = result.isError() ? 400 : 200;
+                QueryFormat.writeJson(result, out);
+                out.write('\n');
+            }
+
+            out.flush();
+            send(exchange, status, body.toByteArray());
+        }
+    } // end handle
+
+    /**
+     * This method parses and runs one query, a query that cannot be parsed becomes an error result
+     */
+    private static QueryResult answer(CrimeStats data, String text) {
+        try {
+            return data.query(CrimeQuery.parse(text));
+        } catch (IllegalArgumentException e) {
+            return QueryResult.failed(text, e.getMessage());
+        }
+    }
+
+    /**
+     * This method returns the decoded values of every q parameter in a query string
+     */
+    private static List<String> queryParameters(String rawQuery) {
+        List<String> values = new ArrayList<>();
+        if (rawQuery == null) {
+            return values;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            if (parameter.startsWith("q=")) {
+                values.add(URLDecoder.decode(parameter.substring(2), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * This method returns a json error object, the message is escaped since it may hold text sent by
+     * the client
+     */
+    private static byte[] error(String message) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        AsciiWriter out = new AsciiWriter(body, 256);
+        out.write("{\"error\":");
+        QueryFormat.writeJsonText(message, out);
+        out.write("}\n");
+        out.flush();
+        return body.toByteArray();
+    }
+
+    /**
+     * This method sends a json response
+     */
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * This method returns an executor that starts a virtual thread for each request when the JVM
+     * supports them, found by reflection so the program still runs on JVMs without them, and a fixed
+     * pool of daemon threads otherwise
+     */
+    private static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "crime-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    } // end newExecutor
+} // end class
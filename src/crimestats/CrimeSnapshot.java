@@ -0,0 +1,357 @@
+package crimestats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * file:    CrimeSnapshot.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeSnapshot saves loaded columns to a binary file next to the csv file and loads them
+ * back on later runs, so a large file is parsed once and then only read. The snapshot starts with a
+ * 48 byte header followed by one block per column in CrimeColumn order, 4 bytes per row for whole
+ * number columns and 8 bytes per row for rates, a block of the region code of each row, then the
+ * region names as a count followed by the length and UTF-8 bytes of each name, all little endian:
+ *
+ *   magic, format version, schema hash, column count, row count    5 ints
+ *   size in bytes of the region names                               1 int
+ *   size and last modified time in milliseconds of the csv file     2 longs
+ *   CRC32 of the column blocks                                      1 long
+ *
+ * A snapshot is only used when its schema matches this version of the program, the csv file still has
+ * the recorded size and modified time, and the checksum is correct. Otherwise the csv file is parsed.
+ * The column blocks can be copied into arrays by load, or mapped into memory by map for
+ * ColumnStorage.FILE, where the queries read the rows from the snapshot itself.
+ */
+public class CrimeSnapshot {
+    // class fields
+
+    private static final int MAGIC = 0x50534e43; // "CNSP" in little endian
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 48;
+    // bytes per row of the columns and the region code
+    private static final int ROW_SIZE = (CrimeColumn.INT_COLUMNS + 1) * Integer.BYTES
+            + CrimeColumn.RATE_COLUMNS * Double.BYTES;
+
+    // size of the buffer used to write a column block
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * This method returns where the snapshot of a csv file is kept
+     * @param file name of the csv file
+     * @return Path of the snapshot, the csv file name with .snapshot added
+     */
+    public static Path pathFor(String file) {
+        return Paths.get(file + ".snapshot");
+    }
+
+    /**
+     * This method writes the columns to a snapshot. The snapshot is written to a temporary file and
+     * renamed when complete, so a failed write never leaves a partial snapshot behind.
+     * @param snapshot path of the snapshot
+     * @param columns columns to save
+     * @param source attributes of the csv file the columns were read from
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path snapshot, CrimeColumns columns, BasicFileAttributes source) throws IOException {
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        int rows = columns.size();
+        CRC32 crc = new CRC32();
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            // rows are copied a block at a time so compact and off heap columns are never copied whole
+            int[] intBlock = new int[BLOCK_SIZE / Integer.BYTES];
+            double[] rateBlock = new double[BLOCK_SIZE / Double.BYTES];
+            channel.position(HEADER_SIZE);
+
+            // write each column in blocks, adding every block to the checksum
+            for (CrimeColumn column : CrimeColumn.values()) {
+                int width = column.isRate() ? Double.BYTES : Integer.BYTES;
+                int perBlock = BLOCK_SIZE / width;
+
+                for (int offset = 0; offset < rows; offset += perBlock) {
+                    int count = Math.min(perBlock, rows - offset);
+                    block.clear();
+                    if (column.isRate()) {
+                        columns.readRates(column, offset, count, rateBlock);
+                        block.asDoubleBuffer().put(rateBlock, 0, count);
+                    } else {
+                        columns.readInts(column, offset, count, intBlock);
+                        block.asIntBuffer().put(intBlock, 0, count);
+                    }
+                    block.limit(count * width);
+                    crc.update(block);
+                    block.rewind();
+                    writeFully(channel, block);
+                }
+            }
+
+            // region codes, then the names of the codes
+            int perBlock = BLOCK_SIZE / Integer.BYTES;
+            for (int offset = 0; offset < rows; offset += perBlock) {
+                int count = Math.min(perBlock, rows - offset);
+                block.clear();
+                columns.readRegions(offset, count, intBlock);
+                block.asIntBuffer().put(intBlock, 0, count);
+                block.limit(count * Integer.BYTES);
+                crc.update(block);
+                block.rewind();
+                writeFully(channel, block);
+            }
+            ByteBuffer names = encodeRegions(columns.getRegionNames());
+            crc.update(names);
+            names.rewind();
+            writeFully(channel, names);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(schemaHash())
+                    .putInt(CrimeColumn.values().length).putInt(rows).putInt(names.limit())
+                    .putLong(source.size()).putLong(source.lastModifiedTime().toMillis())
+                    .putLong(crc.getValue());
+            header.flip();
+            channel.position(0);
+            writeFully(channel, header);
+        }
+
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } // end write
+
+    /**
+     * This method loads the columns from a snapshot if it is still valid for the csv file
+     * @param snapshot path of the snapshot
+     * @param source attributes of the csv file
+     * @return CrimeColumns read from the snapshot, or null if there is no valid snapshot
+     * @throws IOException if the snapshot exists but cannot be read
+     */
+    public static CrimeColumns load(Path snapshot, BasicFileAttributes source) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, source);
+            if (header == null) {
+                return null;
+            }
+            int rows = header.rows;
+
+            int[][] ints = new int[CrimeColumn.INT_COLUMNS][Math.max(rows, 1)];
+            double[][] rates = new double[CrimeColumn.RATE_COLUMNS][Math.max(rows, 1)];
+            int[] regions = new int[Math.max(rows, 1)];
+            CRC32 crc = new CRC32();
+            long position = HEADER_SIZE;
+
+            // map each column block in windows and copy it into its array
+            for (CrimeColumn column : CrimeColumn.values()) {
+                int width = column.isRate() ? Double.BYTES : Integer.BYTES;
+                int perWindow = (int) (MappedCsvReader.WINDOW_SIZE / width);
+
+                for (int offset = 0; offset < rows; offset += perWindow) {
+                    int count = Math.min(perWindow, rows - offset);
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            (long) count * width);
+                    crc.update(window);
+                    window.rewind();
+                    if (column.isRate()) {
+                        window.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+                                .get(rates[column.getSlot()], offset, count);
+                    } else {
+                        window.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+                                .get(ints[column.getSlot()], offset, count);
+                    }
+                    position += (long) count * width;
+                }
+            }
+
+            int perWindow = (int) (MappedCsvReader.WINDOW_SIZE / Integer.BYTES);
+            for (int offset = 0; offset < rows; offset += perWindow) {
+                int count = Math.min(perWindow, rows - offset);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        (long) count * Integer.BYTES);
+                crc.update(window);
+                window.rewind();
+                window.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(regions, offset, count);
+                position += (long) count * Integer.BYTES;
+            }
+            RegionDictionary regionNames = readRegions(channel, position, header, crc, i -> regions[i]);
+            if (regionNames == null) {
+                return null;
+            }
+            return new CrimeColumns(ints, rates, regions, regionNames, rows);
+        }
+    } // end load
+
+    /**
+     * This method maps the columns of a snapshot into memory if it is still valid for the csv file,
+     * without copying them to the heap. The whole snapshot is read once to check its checksum, after
+     * that the operating system keeps the pages that queries read in memory.
+     * @param snapshot path of the snapshot
+     * @param source attributes of the csv file
+     * @return CrimeColumns reading the rows from the snapshot, or null if there is no valid snapshot
+     * @throws IOException if the snapshot exists but cannot be mapped
+     */
+    public static CrimeColumns map(Path snapshot, BasicFileAttributes source) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, source);
+            if (header == null) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            OffHeapColumns columns = OffHeapColumns.map(channel, HEADER_SIZE, header.rows, crc);
+            long position = HEADER_SIZE + (long) header.rows * ROW_SIZE;
+            RegionDictionary regionNames = readRegions(channel, position, header, crc, columns::getRegion);
+            return regionNames == null ? null : new CrimeColumns(columns, regionNames);
+        }
+    } // end map
+
+    /**
+     * This method reads the header and checks that the snapshot was written by this format and schema
+     * for the current csv file
+     * @return Header of the snapshot, or null if it cannot be used
+     */
+    private static Header readHeader(FileChannel channel, BasicFileAttributes source) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // keep reading until the header is full
+        }
+        buffer.flip();
+
+        int magic = buffer.getInt();
+        int version = buffer.getInt();
+        int schema = buffer.getInt();
+        int columnCount = buffer.getInt();
+        Header header = new Header();
+        header.rows = buffer.getInt();
+        header.namesSize = buffer.getInt();
+        long sourceSize = buffer.getLong();
+        long sourceModified = buffer.getLong();
+        header.checksum = buffer.getLong();
+
+        if (magic != MAGIC || version != FORMAT_VERSION || schema != schemaHash()
+                || columnCount != CrimeColumn.values().length || header.rows < 0 || header.namesSize < Integer.BYTES
+                || sourceSize != source.size() || sourceModified != source.lastModifiedTime().toMillis()
+                || channel.size() != HEADER_SIZE + (long) header.rows * ROW_SIZE + header.namesSize) {
+            return null;
+        }
+        return header;
+    } // end readHeader
+
+    /**
+     * This method reads the region names after the column blocks, finishes the checksum and checks it
+     * @return RegionDictionary of the names, or null if the checksum or the names are wrong
+     */
+    private static RegionDictionary readRegions(FileChannel channel, long position, Header header, CRC32 crc,
+                                                IntUnaryOperator regionOf) throws IOException {
+        MappedByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, position, header.namesSize);
+        crc.update(names);
+        names.rewind();
+
+        if (crc.getValue() != header.checksum) {
+            return null;
+        }
+        return decodeRegions(names.order(ByteOrder.LITTLE_ENDIAN), header.rows, regionOf);
+    } // end readRegions
+
+    /**
+     * This method returns a hash of the column names and types, a snapshot written with different
+     * columns is not loaded
+     */
+    private static int schemaHash() {
+        StringBuilder schema = new StringBuilder();
+        for (CrimeColumn column : CrimeColumn.values()) {
+            schema.append(column.getHeader()).append(column.isRate() ? ":rate," : ":int,");
+        }
+        return schema.toString().hashCode();
+    }
+
+    /**
+     * This method writes the region names as a count followed by the length and bytes of each name
+     */
+    private static ByteBuffer encodeRegions(RegionDictionary regionNames) {
+        byte[][] encoded = new byte[regionNames.size()][];
+        int size = Integer.BYTES;
+        for (int code = 0; code < encoded.length; code++) {
+            encoded[code] = regionNames.getName(code).getBytes(StandardCharsets.UTF_8);
+            size += Integer.BYTES + encoded[code].length;
+        }
+
+        ByteBuffer names = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        names.putInt(encoded.length);
+        for (byte[] name : encoded) {
+            names.putInt(name.length).put(name);
+        }
+        names.flip();
+        return names;
+    } // end encodeRegions
+
+    /**
+     * This method reads the region names back in code order, returning null if they do not match the
+     * codes of the rows
+     */
+    private static RegionDictionary decodeRegions(ByteBuffer names, int rows, IntUnaryOperator regionOf) {
+        RegionDictionary regionNames = new RegionDictionary();
+        int count = names.getInt();
+        for (int code = 0; code < count; code++) {
+            if (names.remaining() < Integer.BYTES) {
+                return null;
+            }
+            int length = names.getInt();
+            if (length < 0 || length > names.remaining()) {
+                return null;
+            }
+            byte[] name = new byte[length];
+            names.get(name);
+            // code 0 is the national region, already in a new dictionary
+            if (regionNames.code(new String(name, StandardCharsets.UTF_8)) != code) {
+                return null;
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            int code = regionOf.applyAsInt(i);
+            if (code < 0 || code >= count) {
+                return null;
+            }
+        }
+        return regionNames;
+    } // end decodeRegions
+
+    /**
+     * Header holds the fields of the snapshot header needed after it is checked
+     */
+    private static class Header {
+        private int rows;
+        private int namesSize;
+        private long checksum;
+    }
+
+    /**
+     * This method writes every remaining byte of the buffer to the channel
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+} // end class
@@ -1,28 +1,79 @@
 package crimestats;
 
+import javax.management.JMException;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * file:    CrimeStats.java
  * author:  Michael DeAngelo
  * date:    February 28, 2018
  * purpose: CrimeStats class processes statistical data from US crime stats by comparing multiple years data
- * for all data points. Opens and reads the crime stats csv file into an object array, then closes the file
- * and performs all other processing from the array.
+ * for all data points. Opens and reads the crime stats csv file into a column store, then closes the file
+ * and performs all other processing from the columns. The columns grow as rows are read so files of any
+ * length can be loaded, and forEachRow can stream a file through a consumer without storing the rows.
+ * The file is read line by line by default, memory mapped with IngestMode.MAPPED, parsed on all
+ * cores with IngestMode.PARALLEL, or indexed with IngestMode.LAZY so each column is only parsed when a
+ * query first reads it. With --snapshot the columns are saved to a CrimeSnapshot after the
+ * file is parsed and loaded from it on later runs while the file is unchanged. Rows can be appended
+ * after loading, from csv text with append or from the end of a growing file with a CrimeTail. Rows
+ * may start with a region name, and groupBy adds up the crimes of each region, year or both. The time
+ * taken by each phase of loading and by each query is recorded in its CrimeStatsMetrics. With
+ * ColumnStorage.COMPACT the loaded columns are packed into EncodedColumns to hold more rows per heap,
+ * and with ColumnStorage.OFF_HEAP or ColumnStorage.FILE they are kept outside the heap. File storage
+ * reads the columns from the snapshot, so it writes one whether or not --snapshot is given.
+ *
+ * The data is held in a CrimeDataset that is never changed once published. Appending rows and reload
+ * build a new dataset and publish it in one volatile write, so queries running on other threads take
+ * no lock and see either the old rows or the new ones, never a file half loaded. Each query is answered
+ * from a view pinned to the dataset current when it started, see pin.
  */
 public class CrimeStats {
     // class fields
 
+    // initial capacity of the columns, enough for 20 years of national data
+    private static final int INITIAL_CAPACITY = 20;
+
     private BufferedReader in = null;
-    private USCrimeStats[] crimeArray = new USCrimeStats[21];
-    private int length = crimeArray.length;
+    // file the data was loaded from and how, read again by reload
+    private String file = null;
+    private IngestMode mode = IngestMode.READER;
+    private boolean useSnapshot = false;
+    private ColumnStorage storage = ColumnStorage.HEAP;
+    // number of bytes of the file that were loaded, where a CrimeTail starts reading
+    private volatile long loadedSize = 0;
+    // stream for loading progress and no data messages, System.out unless a caller needs stdout for results
+    private final PrintStream progress;
+    // the rows and the summaries built from them, replaced as a whole when rows are appended or the
+    // file is reloaded
+    private volatile CrimeDataset dataset;
+    // true for a view made by pin, which keeps one dataset and cannot be changed
+    private final boolean pinned;
+    // pool and threshold for splitting large scans and parallel ingest across threads
+    private Parallelism parallelism;
+    // results of recent queries, cleared when rows are appended
+    private QueryCache queryCache;
+    // time taken to load the data and answer queries
+    private final CrimeStatsMetrics metrics;
 
     /**
-     * getter method to get the crimeArray array
+     * getter method to get the crimeArray array. Index 0 is the header row and is always null so the
+     * first year is at index 1, each element is a view of one row of the current dataset. The array is
+     * a copy, changing it does not change the data.
      * @return array crimeArray
      */
     public USCrimeStats[] getCrimeArray() {
-        return crimeArray;
+        return dataset.getRows().clone();
     }
 
     /**
@@ -30,225 +81,975 @@ public class CrimeStats {
      * @return int length of the CrimeArray
      */
     public int getLength() {
-        return this.length;
+        return dataset.size() + 1;
+    }
+
+    /**
+     * getter method to get the column store holding the data, rows are indexed from 0. The columns
+     * are not changed, rows appended later are in the columns of a new dataset.
+     * @return CrimeColumns columns
+     */
+    public CrimeColumns getColumns() {
+        return dataset.getColumns();
+    }
+
+    /**
+     * getter method to get the current dataset, without taking a lock
+     * @return CrimeDataset that is not changed after it is returned
+     */
+    public CrimeDataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * This method returns a read only view of the data as it is now. The view answers every query from
+     * the same rows however many rows are appended or reloaded meanwhile, so several queries that must
+     * agree, such as the queries of one request, are asked of one view. It shares the cache, metrics
+     * and parallelism of this CrimeStats.
+     * @return CrimeStats pinned to the current dataset
+     */
+    public CrimeStats pin() {
+        return pinned ? this : new CrimeStats(this, dataset);
+    }
+
+    /**
+     * constructor for a CrimeStats holding no rows, the public constructors then load a file into it
+     * @param progress stream for progress messages
+     */
+    private CrimeStats(PrintStream progress) {
+        this.progress = progress;
+        this.dataset = new CrimeDataset(new CrimeColumns(INITIAL_CAPACITY));
+        this.pinned = false;
+        this.parallelism = Parallelism.defaults();
+        this.queryCache = new QueryCache(QueryCache.DEFAULT_CAPACITY);
+        this.metrics = new CrimeStatsMetrics(this);
+    }
+
+    /**
+     * constructor for a view of one dataset of another CrimeStats, see pin
+     */
+    private CrimeStats(CrimeStats source, CrimeDataset dataset) {
+        this.progress = source.progress;
+        this.dataset = dataset;
+        this.pinned = true;
+        this.file = source.file;
+        this.mode = source.mode;
+        this.storage = source.storage;
+        this.loadedSize = source.loadedSize;
+        this.parallelism = source.parallelism;
+        this.queryCache = source.queryCache;
+        this.metrics = source.metrics;
     }
 
 
     /**
      * This constructor checks that a command line argument was entered and
      * assigns it to a field and calls processFile with the file as a String
-     * argument to open process and close the file.
+     * argument to open process and close the file. An optional --ingest=name
+     * argument selects the IngestMode and --snapshot loads and saves a CrimeSnapshot. The options
+     * --parallelism=n and --parallel-threshold=rows configure the Parallelism of large queries and
+     * --cache-size=n the number of query results kept by the QueryCache, 0 turns the cache off. With
+     * --jmx the CrimeStatsMetrics are registered with JMX and --metrics=file writes them to the file
+     * as json when the program exits. --storage=name selects the ColumnStorage, --storage=file always
+     * writes the CrimeSnapshot next to the file, named file.snapshot, even without --snapshot.
      * @param args command line argument
      */
     public CrimeStats(String[] args) {
+        this(args, System.out);
+    } // end constructor
+
+    /**
+     * This constructor reads the file named by the command line arguments like CrimeStats(String[]),
+     * writing the loading progress messages to the given stream
+     * @param args command line argument
+     * @param progress stream for progress messages
+     */
+    public CrimeStats(String[] args, PrintStream progress) {
+        this(progress);
         String file = null;
+        IngestMode mode = IngestMode.READER;
+        boolean useSnapshot = false;
+        ColumnStorage storage = ColumnStorage.HEAP;
+        boolean jmx = false;
+        String metricsFile = null;
 
         try{
             file = args[0];
+            mode = IngestMode.fromArgs(args);
+            for (String arg : args) {
+                useSnapshot |= arg.equals("--snapshot");
+                jmx |= arg.equals("--jmx");
+                if (arg.startsWith("--metrics=")) {
+                    metricsFile = arg.substring("--metrics=".length());
+                }
+            }
         } catch (ArrayIndexOutOfBoundsException e) {
             System.err.println("Error: no file specified ");
             System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: unknown ingest mode " + e.getMessage());
+            System.exit(1);
+        }
+        try {
+            storage = ColumnStorage.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: unknown storage " + e.getMessage());
+            System.exit(1);
+        }
+
+        try {
+            parallelism = Parallelism.fromArgs(args);
+            for (String arg : args) {
+                if (arg.startsWith("--cache-size=")) {
+                    queryCache = new QueryCache(Integer.parseInt(arg.substring("--cache-size=".length())));
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error: not a number " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+
+        // register the metrics before loading so a console can watch a long load
+        if (jmx) {
+            try {
+                metrics.register();
+            } catch (JMException e) {
+                System.err.println("Warning: cannot register metrics: " + e.getMessage());
+            }
+        }
+        if (metricsFile != null) {
+            String path = metricsFile;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writeMetrics(path)));
         }
 
         /*
-        call processFile method to open the crime csv file, read the data and store in an object array,
+        call processFile method to open the crime csv file, read the data and store in the columns,
         then close the file
         */
-        processFile(file);
+        processFile(file, mode, useSnapshot, storage);
 
     } // end constructor
 
     /**
-     * This method is called by the class constructor and opens the crime file, then reads and processes
-     * it into an object array, and finally closes the file.
-     * @param file name of csv passed into the program by command line argument
+     * This constructor reads the file with the selected ingest mode
+     * @param file name of the csv file
+     * @param mode how to read the file
+     */
+    public CrimeStats(String file, IngestMode mode) {
+        this(file, mode, false);
+    } // end constructor
+
+    /**
+     * This constructor reads the file with the selected ingest mode, loading it from its snapshot
+     * instead when useSnapshot is set and the snapshot is current
+     * @param file name of the csv file
+     * @param mode how to read the file
+     * @param useSnapshot whether to load and save a CrimeSnapshot of the file
      */
-    private void processFile(String file) {
-        // method variables
+    public CrimeStats(String file, IngestMode mode, boolean useSnapshot) {
+        this(file, mode, useSnapshot, ColumnStorage.HEAP);
+    } // end constructor
 
-        // used for the array index
-        int index = 0;
+    /**
+     * This constructor reads the file like CrimeStats(String, IngestMode, boolean) and keeps the
+     * columns in the selected storage
+     * @param file name of the csv file
+     * @param mode how to read the file
+     * @param useSnapshot whether to load and save a CrimeSnapshot of the file
+     * @param storage how to hold the columns once they are loaded
+     */
+    public CrimeStats(String file, IngestMode mode, boolean useSnapshot, ColumnStorage storage) {
+        this(System.out);
+        processFile(file, mode, useSnapshot, storage);
+    } // end constructor
+
+    /**
+     * This method opens the crime file and passes each data row to the consumer as a new USCrimeStats
+     * object without storing it, so files larger than the heap can be processed in bounded memory.
+     * @param file name of the csv file
+     * @param consumer receives one USCrimeStats object per data row, in file order
+     * @throws IOException if the file cannot be opened or read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    public static void forEachRow(String file, Consumer<USCrimeStats> consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(Paths.get(file)), StandardCharsets.UTF_8))) {
+            CrimeCsvParser parser = new CrimeCsvParser();
+            // used to hold the String from reading one line of the file
+            String line;
+            long lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                // skip the header row and blank lines such as a trailing newline at the end of the file
+                if (!CrimeCsvParser.isBlank(line) && !(lineNumber == 1 && CrimeCsvParser.isHeader(line))) {
+                    CrimeColumns row = new CrimeColumns(1);
+                    parser.parse(line, lineNumber, row);
+                    consumer.accept(new USCrimeStats(row, 0));
+                }
+            }
+        }
+    } // end forEachRow
+
+    /**
+     * This method reads every line from the reader and appends the data rows to the columns
+     * @param reader open reader positioned at the start of the file
+     * @param columns columns to append the rows to
+     * @throws IOException if the reader fails
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    static void readLines(BufferedReader reader, CrimeColumns columns) throws IOException {
+        CrimeCsvParser parser = new CrimeCsvParser();
         // used to hold the String from reading one line of the file
         String line;
+        long lineNumber = 0;
 
-        // process the file
-        try {
-            // first open the file
-            this.in = new BufferedReader(new FileReader(file));
-
-            System.out.println("File opened: " + file);
-            System.out.println("Processing file ... ");
-            // read the file and process into an object array
-            while ((line = in.readLine())!= null) {
-                // first row is headers, we do not want this row
-                if (index > 0) {
-                    // create new USCrimeStats object and store in the array
-                    crimeArray[index] = new USCrimeStats(line);
-                }
-                // increment index
-                index++;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            // first row is headers, we do not want this row or blank lines
+            if (!CrimeCsvParser.isBlank(line) && !(lineNumber == 1 && CrimeCsvParser.isHeader(line))) {
+                parser.parse(line, lineNumber, columns);
             }
+        }
+    } // end readLines
 
-        }catch (FileNotFoundException e){
+    /**
+     * This method is called by the class constructor and opens the crime file, then reads and processes
+     * it into the columns, and finally closes the file.
+     * @param file name of csv passed into the program by command line argument
+     * @param mode how to read the file
+     * @param useSnapshot whether to load and save a CrimeSnapshot of the file
+     * @param storage how to hold the columns once they are loaded
+     */
+    private void processFile(String file, IngestMode mode, boolean useSnapshot, ColumnStorage storage) {
+        this.file = file;
+        this.mode = mode;
+        this.useSnapshot = useSnapshot;
+        this.storage = storage;
+
+        try {
+            load();
+        }catch (FileNotFoundException | NoSuchFileException e){
             System.err.println("Error opening file: " + e.getMessage());
             System.exit(1);
         }catch (IOException io) {
             System.err.println("I/O error: " + io.getMessage());
             System.exit(1);
+        }catch (CrimeDataFormatException format) {
+            System.err.println("Error in file " + file + ": " + format.getMessage());
+            System.exit(1);
+        }
+    } // end processFile
+
+    /**
+     * This method reads the file again the way it was first loaded and replaces the data with it once
+     * it is completely read. Queries running meanwhile are answered from the data as it was, and if the
+     * file cannot be read the data is not changed. Rows appended since the file was loaded are dropped
+     * unless the file holds them, and a CrimeTail following the file keeps reading from where it was,
+     * so it should be started again after a reload.
+     * @throws IOException if the file cannot be read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     * @throws IllegalStateException if this is a view made by pin
+     */
+    public synchronized void reload() throws IOException {
+        if (pinned) {
+            throw new IllegalStateException("a pinned view cannot be reloaded");
+        }
+        load();
+    } // end reload
+
+    /**
+     * This method loads the file, or its snapshot if it is current, and publishes the new dataset
+     * @throws IOException if the file cannot be read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    private void load() throws IOException {
+        long allocated = CrimeStatsMetrics.allocatedBytes();
+
+        // a current snapshot replaces parsing the file, file storage always reads its snapshot
+        boolean snapshot = useSnapshot || storage == ColumnStorage.FILE;
+        if (snapshot && loadSnapshot(file)) {
+            metrics.recordIngestAllocation(CrimeStatsMetrics.allocatedBytes() - allocated);
+            return;
+        }
+
+        // the snapshot describes the file as it was before it is parsed, so rows written meanwhile are
+        // never recorded as loaded
+        BasicFileAttributes source = snapshot
+                ? Files.readAttributes(Paths.get(file), BasicFileAttributes.class) : null;
+
+        // the rows are read into columns no other thread sees until they are published
+        CrimeColumns loading;
+        long size;
+        if (mode == IngestMode.LAZY) {
+            LazyCsvColumns index = indexFile();
+            loading = new CrimeColumns(index);
+            size = index.getFileSize();
+        } else {
+            loading = new CrimeColumns(INITIAL_CAPACITY);
+            size = readFile(loading);
+        }
+        dataset = new CrimeDataset(store(loading));
+        loadedSize = size;
+        long unread = Files.size(Paths.get(file)) - size;
+        if (unread > 0) {
+            // a last line without a newline may still be being written, or rows were appended meanwhile
+            progress.println("Not loaded: " + unread + " bytes at the end of " + file + " that were incomplete"
+                    + " or written while it was read, watch the file to append them");
+            progress.println();
+        }
+
+        metrics.recordIngestAllocation(CrimeStatsMetrics.allocatedBytes() - allocated);
+        if (snapshot) {
+            // file storage then maps the snapshot just written in place of the parsed columns, if it
+            // cannot be written the parsed columns are kept
+            if (saveSnapshot(file, source) && storage == ColumnStorage.FILE) {
+                loadSnapshot(file);
+            }
+        }
+    } // end load
+
+    /**
+     * This method puts loaded columns in the selected storage. Compact and off heap storage copy every
+     * column, so columns of IngestMode.LAZY are decoded in full. File storage keeps the columns as they
+     * are, they are replaced once the snapshot is written.
+     * @param columns columns just loaded
+     * @return CrimeColumns to publish
+     */
+    private CrimeColumns store(CrimeColumns columns) {
+        if (storage == ColumnStorage.COMPACT) {
+            progress.println("Compacting columns ... ");
+            CrimeColumns compact = columns.compact(parallelism);
+            progress.println("Columns compacted from " + columns.memoryBytes() / 1024 + " KB to "
+                    + compact.memoryBytes() / 1024 + " KB");
+            progress.println();
+            return compact;
+        } else if (storage == ColumnStorage.OFF_HEAP && !columns.isOffHeap()) {
+            progress.println("Copying columns off heap ... ");
+            CrimeColumns offHeap = new CrimeColumns(OffHeapColumns.copyOf(columns), columns.getRegionNames());
+            progress.println("Columns copied to " + offHeap.memoryBytes() / 1024 + " KB of direct memory");
+            progress.println();
+            return offHeap;
+        }
+        return columns;
+    } // end store
+
+    /**
+     * This method maps the file and indexes its rows for IngestMode.LAZY, the index time is recorded as
+     * the parse time
+     * @return LazyCsvColumns of the rows of the file
+     * @throws IOException if the file cannot be read
+     * @throws CrimeDataFormatException if a row has the wrong number of fields
+     */
+    private LazyCsvColumns indexFile() throws IOException {
+        long start = System.nanoTime();
+        progress.println("Mapping file: " + file);
+        progress.println("Indexing file ... ");
+        LazyCsvColumns index = LazyCsvColumns.index(Paths.get(file));
+        metrics.recordParse(mode, System.nanoTime() - start, index.size(), index.getFileSize());
+        progress.println("File indexing completed ...");
+        progress.println();
+        return index;
+    } // end indexFile
+
+    /**
+     * This method reads the rows of the file into the columns with the ingest mode
+     * @param columns empty columns to fill
+     * @return long number of bytes of the file that were read
+     * @throws IOException if the file cannot be read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    private long readFile(CrimeColumns columns) throws IOException {
+        long start = System.nanoTime();
+        long size;
+        try {
+            if (mode == IngestMode.MAPPED || mode == IngestMode.PARALLEL) {
+                // map the file and parse the bytes, the mapping is released when the reader is done
+                progress.println("Mapping file: " + file);
+                progress.println("Processing file ... ");
+                if (mode == IngestMode.PARALLEL) {
+                    size = ParallelCsvReader.read(Paths.get(file), columns, parallelism.getPool(), true);
+                } else {
+                    size = MappedCsvReader.read(Paths.get(file), columns, true);
+                }
+                metrics.recordParse(mode, System.nanoTime() - start, columns.size(), size);
+                progress.println("File processing completed ...");
+                progress.println();
+            } else {
+                // first open the file, only up to its last newline so a row still being written is
+                // left for a CrimeTail, and so are any rows appended while the file is read
+                size = completeLength(Paths.get(file));
+                this.in = new BufferedReader(new InputStreamReader(
+                        new BoundedInputStream(Files.newInputStream(Paths.get(file)), size), StandardCharsets.UTF_8));
+                long opened = System.nanoTime();
+                metrics.recordOpen(opened - start);
+
+                progress.println("File opened: " + file);
+                progress.println("Processing file ... ");
+
+                // read the file and append each row to the columns
+                readLines(in, columns);
+                metrics.recordParse(mode, System.nanoTime() - opened, columns.size(), size);
+            }
         }finally {
-            // close file
-            try {
-                System.out.println("File processing completed ...");
-                System.out.println("Closing file .... " );
-                in.close();
-                System.out.println("File successfully closed");
-                System.out.println();
-            } catch (IOException ioClose) {
-                System.err.println("Error closing file: " + ioClose);
+            // close file, the mapped ingest mode has no reader to close
+            if (in != null) {
+                try {
+                    progress.println("File processing completed ...");
+                    progress.println("Closing file .... " );
+                    in.close();
+                    progress.println("File successfully closed");
+                    progress.println();
+                } catch (IOException ioClose) {
+                    System.err.println("Error closing file: " + ioClose);
+                }
+                in = null;
             }
         }
-    }
+        return size;
+    } // end readFile
 
+    /**
+     * This method finds the end of the last complete line of the file, reading back from its end
+     * @param path csv file
+     * @return long number of bytes up to and including the last newline, 0 if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private static long completeLength(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long end = channel.size();
+            while (end > 0) {
+                long from = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit((int) (end - from));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, from + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                int last = MappedCsvReader.lastLineEnd(buffer, 0, buffer.position());
+                if (last >= 0) {
+                    return from + last;
+                }
+                end = from;
+            }
+            return 0;
+        }
+    } // end completeLength
 
     /**
-     * This method calculates the maximum rate of the selected option and returns the corresponding object
-     * @return maximum rate of passed in argument as USCrimeStats object
+     * This class reads a stream only up to a number of bytes, so the reader ingest mode stops at the
+     * last newline found when the file was opened
      */
-    public USCrimeStats getMaxRate(String option) {
-        // method variables
-        double compareOption = 0.0;
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
 
-        // used to find the highest rate, initialize to -1 since there will be no data with negative values
-        double maxRate = -1;
-        // index of array object to be returned
-        int returnIndex = 0;
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
 
-        /*
-        scan array comparing each robbery rate to find the highest rate. It will compare the previously stored
-        minimum with the current and store the least then set the current index to the returnIndex
-        */
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(bytes, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = in.skip(Math.min(count, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    } // end BoundedInputStream
+
+    /**
+     * This method replaces the data with the snapshot of the file if the snapshot is current
+     * @param file name of the csv file
+     * @return true if the columns were loaded from the snapshot
+     */
+    private boolean loadSnapshot(String file) {
+        long start = System.nanoTime();
         try {
-            for (int i = 1; i < this.length; i++) {
-                switch (option) {
-                    case "Violent Crime":
-                        compareOption = this.crimeArray[i].getViolentCrimeRate();
-                        break;
+            BasicFileAttributes source = Files.readAttributes(Paths.get(file), BasicFileAttributes.class);
+            boolean mapped = storage == ColumnStorage.FILE;
+            CrimeColumns loaded = mapped ? CrimeSnapshot.map(CrimeSnapshot.pathFor(file), source)
+                    : CrimeSnapshot.load(CrimeSnapshot.pathFor(file), source);
+            if (loaded == null) {
+                return false;
+            }
+            dataset = new CrimeDataset(store(loaded));
+            loadedSize = source.size();
+            metrics.recordSnapshotLoad(System.nanoTime() - start, loaded.size(), loadedSize);
+            progress.println((mapped ? "Snapshot mapped: " : "Snapshot loaded: ") + CrimeSnapshot.pathFor(file));
+            progress.println();
+            return true;
+        } catch (IOException e) {
+            // parse the csv file instead, it reports a missing file
+            System.err.println("Warning: cannot read snapshot of " + file + ": " + e.getMessage());
+            return false;
+        }
+    } // end loadSnapshot
 
-                    case "Murder":
-                        compareOption = this.crimeArray[i].getMurderRate();
-                        break;
+    /**
+     * This method saves the columns to the snapshot of the file, a failure only costs the next run a parse.
+     * The snapshot is only saved if the columns hold the whole file and it has not changed since it was
+     * read, otherwise a later run would take the rows that are missing as loaded.
+     * @param file name of the csv file
+     * @param source attributes of the file read before it was parsed
+     * @return true if the snapshot was written
+     */
+    private boolean saveSnapshot(String file, BasicFileAttributes source) {
+        long start = System.nanoTime();
+        try {
+            BasicFileAttributes current = Files.readAttributes(Paths.get(file), BasicFileAttributes.class);
+            String skipped = null;
+            if (loadedSize != source.size()) {
+                skipped = "its last line is not complete";
+            } else if (current.size() != source.size()
+                    || !current.lastModifiedTime().equals(source.lastModifiedTime())) {
+                skipped = "it changed while it was read";
+            }
+            if (skipped != null) {
+                progress.println("Snapshot not saved: " + file + " was not loaded in full, " + skipped);
+                progress.println();
+                return false;
+            }
+            CrimeSnapshot.write(CrimeSnapshot.pathFor(file), dataset.getColumns(), source);
+            metrics.recordSnapshotSave(System.nanoTime() - start);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Warning: cannot write snapshot of " + file + ": " + e.getMessage());
+            return false;
+        }
+    } // end saveSnapshot
 
-                    case "Robbery":
-                        compareOption = this.crimeArray[i].getRobberyRate();
-                        break;
 
-                    case "Rape":
-                        compareOption = this.crimeArray[i].getRapeRate();
-                        break;
+    /**
+     * getter method to get the number of bytes of the file that were loaded, up to the last newline of
+     * the file when it was read
+     * @return long number of bytes, where a CrimeTail starts reading
+     */
+    public long getLoadedSize() {
+        return loadedSize;
+    }
 
-                    case "Assault":
-                        compareOption = this.crimeArray[i].getAssaultRate();
-                        break;
+    /**
+     * This method parses lines of csv text and appends their rows. A header on the first line and blank
+     * lines are skipped. If any line cannot be parsed no rows are appended. The cached summary and
+     * year index are extended with the new rows the next time they are used. Queries running meanwhile
+     * are answered from the rows before them.
+     * @param lines csv text with one row per line
+     * @return int number of rows appended
+     * @throws CrimeDataFormatException if a line cannot be parsed, lines are numbered from 1 in the text
+     */
+    public int append(String lines) {
+        CrimeColumns rows = new CrimeColumns(INITIAL_CAPACITY);
+        try {
+            readLines(new BufferedReader(new StringReader(lines)), rows);
+        } catch (IOException e) {
+            // reading a String does not fail
+            throw new UncheckedIOException(e);
+        }
+        append(rows);
+        return rows.size();
+    } // end append
 
-                    case "Property Crime":
-                        compareOption = this.crimeArray[i].getPropertyCrimeRate();
-                        break;
+    /**
+     * This method appends the rows of parsed columns by publishing a new dataset holding them, appends
+     * from several threads are applied one at a time
+     * @param rows columns holding the new rows
+     * @throws IllegalStateException if this is a view made by pin
+     */
+    synchronized void append(CrimeColumns rows) {
+        if (pinned) {
+            throw new IllegalStateException("rows cannot be appended to a pinned view");
+        }
+        if (rows.size() > 0) {
+            dataset = dataset.withRows(rows);
+            metrics.recordAppend(rows.size());
+        }
+    }
 
-                    case "Burglary":
-                        compareOption = this.crimeArray[i].getBurglaryRate();
-                        break;
+    /**
+     * getter method to get how large queries are split across threads
+     * @return Parallelism of the queries
+     */
+    public Parallelism getParallelism() {
+        return parallelism;
+    }
 
-                    case "Theft":
-                        compareOption = this.crimeArray[i].getTheftRate();
-                        break;
+    /**
+     * setter method to choose how large queries are split across threads, such as a smaller pool on a
+     * shared host
+     * @param parallelism pool and threshold for later queries
+     */
+    public void setParallelism(Parallelism parallelism) {
+        this.parallelism = parallelism;
+    }
 
-                    case "Vehicle":
-                        compareOption = this.crimeArray[i].getVehicleTheftRate();
-                        break;
+    /**
+     * This method answers a query, returning the cached result if the same question was answered since
+     * rows were last appended
+     * @param query parsed query
+     * @return QueryResult with the answer
+     */
+    public QueryResult query(CrimeQuery query) {
+        long allocated = CrimeStatsMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        QueryResult result = queryCache.get(query, pin());
+        metrics.recordQuery(query.getKindName(), System.nanoTime() - start,
+                CrimeStatsMetrics.allocatedBytes() - allocated, result.isError());
+        return result;
+    }
 
-                } // end switch
+    /**
+     * getter method to get the time taken to load the data and answer queries
+     * @return CrimeStatsMetrics of this data
+     */
+    public CrimeStatsMetrics getMetrics() {
+        return metrics;
+    }
 
-                if (maxRate < compareOption) {
-                    maxRate = compareOption;
-                    returnIndex = i;
-                }// end if
-            }// end for
-        }catch (NullPointerException n) {
-            System.out.println("Error: no data " + n.getMessage());
+    /**
+     * This method writes the metrics to a json file when the program exits, a failure is only reported
+     */
+    private void writeMetrics(String file) {
+        try {
+            metrics.writeJson(file);
+        } catch (IOException e) {
+            System.err.println("Warning: cannot write metrics to " + file + ": " + e.getMessage());
         }
-        return crimeArray[returnIndex];
+    }
+
+    /**
+     * getter method to get the cache of query results, for its hit and miss counts
+     * @return QueryCache of this data
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * This method returns the index of the rows by year. The index is built the first time it is
+     * needed and extended after rows are appended.
+     * @return YearIndex of the current data
+     */
+    public YearIndex getYearIndex() {
+        return dataset.getYearIndex();
+    }
+
+    /**
+     * This method returns the lowest and highest value of every rate column. The summary is computed
+     * in one pass the first time it is needed and extended with the new rows after rows are appended.
+     * @return RateSummary of the current data
+     */
+    public RateSummary getRateSummary() {
+        return dataset.getRateSummary(parallelism);
+    }
+
+    /**
+     * This method calculates the maximum rate of the selected option and returns the corresponding object
+     * @param option name of the crime, such as "Murder" or "Vehicle"
+     * @return maximum rate of passed in argument as USCrimeStats object
+     * @throws IllegalArgumentException if the option is not a crime
+     */
+    public USCrimeStats getMaxRate(String option) {
+        return getMaxRate(CrimeMetric.fromOption(option));
+    } // end getMaxRate
+
+    /**
+     * This method finds the year with the maximum rate of a crime and returns the corresponding object
+     * @param metric crime to look up
+     * @return maximum rate of the crime as USCrimeStats object, or null if there is no data
+     */
+    public USCrimeStats getMaxRate(CrimeMetric metric) {
+        // look up the row with the highest rate for the crime in the summary
+        CrimeDataset data = dataset;
+        CrimeColumns columns = data.getColumns();
+        // the summary covers every crime, lazily decoded columns only scan the column of this one
+        int returnRow = columns.isLazy() ? columns.maxRow(metric.getRateColumn())
+                : data.getRateSummary(parallelism).getMaxRow(metric.getRateColumn());
+
+        if (returnRow < 0) {
+            progress.println("Error: no data for " + metric.getOption());
+            return null;
+        }
+        return new USCrimeStats(columns, returnRow);
+    } // end getMaxRate
+
+    /**
+     * This method finds the row with the highest rate of a crime from one year to another using the
+     * sparse tables of the year index
+     * @param metric crime to look up
+     * @param fromYear first year, inclusive
+     * @param toYear last year, inclusive
+     * @return USCrimeStats object for the row with the maximum rate, or null if no year is in the range
+     */
+    public USCrimeStats getMaxRate(CrimeMetric metric, int fromYear, int toYear) {
+        CrimeDataset data = dataset;
+        int returnRow = data.getYearIndex().maxRow(metric, fromYear, toYear);
+        return returnRow < 0 ? null : new USCrimeStats(data.getColumns(), returnRow);
     } // end getMaxRate
 
 
     /**
      * This method calculates the minimum rate of the selected option and returns the corresponding object
+     * @param option name of the crime, such as "Murder" or "Vehicle"
      * @return minimum rate of passed in argument as USCrimeStats object
+     * @throws IllegalArgumentException if the option is not a crime
      */
     public USCrimeStats getMinRate(String option) {
-        // method variables
-        double compareOption = 0.0;
+        return getMinRate(CrimeMetric.fromOption(option));
+    } // end getMinRate
 
-        // used to find the lowest rate, initialize to -1 since there will be no data with negative values
-        double minRate = -1;
-        // index of array object to be returned
-        int returnIndex = 0;
+    /**
+     * This method finds the year with the minimum rate of a crime and returns the corresponding object
+     * @param metric crime to look up
+     * @return minimum rate of the crime as USCrimeStats object, or null if there is no data
+     */
+    public USCrimeStats getMinRate(CrimeMetric metric) {
+        // look up the row with the lowest rate for the crime in the summary
+        CrimeDataset data = dataset;
+        CrimeColumns columns = data.getColumns();
+        // the summary covers every crime, lazily decoded columns only scan the column of this one
+        int returnRow = columns.isLazy() ? columns.minRow(metric.getRateColumn())
+                : data.getRateSummary(parallelism).getMinRow(metric.getRateColumn());
 
-        /*
-        scan array comparing each robbery rate to find the lowest rate. First iteration will assign the
-        current object to the minRate variable, subsequent iterations will compare the previously stored
-        minimum with the current and store the least then set the current index to the returnIndex
-        */
-        try {
-            for (int i = 1; i < this.length; i++) {
-                switch (option) {
-                    case "Violent Crime":
-                        compareOption = this.crimeArray[i].getViolentCrimeRate();
-                        break;
+        if (returnRow < 0) {
+            progress.println("Error: no data for " + metric.getOption());
+            return null;
+        }
+        return new USCrimeStats(columns, returnRow);
+    } // end getMinRate
 
-                    case "Murder":
-                        compareOption = this.crimeArray[i].getMurderRate();
-                        break;
+    /**
+     * This method finds the row with the lowest rate of a crime from one year to another using the
+     * sparse tables of the year index
+     * @param metric crime to look up
+     * @param fromYear first year, inclusive
+     * @param toYear last year, inclusive
+     * @return USCrimeStats object for the row with the minimum rate, or null if no year is in the range
+     */
+    public USCrimeStats getMinRate(CrimeMetric metric, int fromYear, int toYear) {
+        CrimeDataset data = dataset;
+        int returnRow = data.getYearIndex().minRow(metric, fromYear, toYear);
+        return returnRow < 0 ? null : new USCrimeStats(data.getColumns(), returnRow);
+    } // end getMinRate
 
-                    case "Robbery":
-                        compareOption = this.crimeArray[i].getRobberyRate();
-                        break;
+    /**
+     * This method finds the rows with the highest rates of a crime in one pass over the rate column
+     * @param metric crime to look up
+     * @param k number of rows
+     * @return USCrimeStats objects from the highest rate, the earliest row wins a tie, fewer than k if
+     * there are fewer rows
+     */
+    public USCrimeStats[] getTopRates(CrimeMetric metric, int k) {
+        CrimeColumns columns = dataset.getColumns();
+        return rowsOf(columns, columns.topRows(metric.getRateColumn(), k, true, parallelism));
+    } // end getTopRates
 
-                    case "Rape":
-                        compareOption = this.crimeArray[i].getRapeRate();
-                        break;
+    /**
+     * This method finds the rows with the lowest rates of a crime in one pass over the rate column
+     * @param metric crime to look up
+     * @param k number of rows
+     * @return USCrimeStats objects from the lowest rate, the earliest row wins a tie, fewer than k if
+     * there are fewer rows
+     */
+    public USCrimeStats[] getBottomRates(CrimeMetric metric, int k) {
+        CrimeColumns columns = dataset.getColumns();
+        return rowsOf(columns, columns.topRows(metric.getRateColumn(), k, false, parallelism));
+    } // end getBottomRates
 
-                    case "Assault":
-                        compareOption = this.crimeArray[i].getAssaultRate();
-                        break;
+    /**
+     * This method returns a row object for each row index
+     */
+    private static USCrimeStats[] rowsOf(CrimeColumns columns, int[] rows) {
+        USCrimeStats[] result = new USCrimeStats[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = new USCrimeStats(columns, rows[i]);
+        }
+        return result;
+    }
 
-                    case "Property Crime":
-                        compareOption = this.crimeArray[i].getPropertyCrimeRate();
-                        break;
+    /**
+     * This method returns a percentile of the rates of a crime, interpolating between the two nearest
+     * rates when the percentile falls between rows. The rates are sorted the first time a percentile of
+     * the crime is asked for, later percentiles are looked up until rows are appended.
+     * @param metric crime to look up
+     * @param percent percentile from 0 to 100, 50 for the median
+     * @return double rate, or NaN if there is no data
+     * @throws IllegalArgumentException if percent is not between 0 and 100
+     */
+    public double getPercentile(CrimeMetric metric, double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100: " + percent);
+        }
+        double[] values = dataset.getSortedRates(metric.getRateColumn(), parallelism);
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        double rank = percent / 100 * (values.length - 1);
+        int below = (int) rank;
+        if (below == values.length - 1) {
+            return values[below];
+        }
+        return values[below] + (rank - below) * (values[below + 1] - values[below]);
+    } // end getPercentile
 
-                    case "Burglary":
-                        compareOption = this.crimeArray[i].getBurglaryRate();
-                        break;
+    /**
+     * This method estimates a percentile of the rates of a crime with a KllSketch of the loaded rates,
+     * so the rates are not copied and sorted as getPercentile does. The sketch is built the first time
+     * a percentile of the crime is estimated and used until rows are appended. The rank of the estimate
+     * is usually within 1% of the rows of the exact percentile.
+     * @param metric crime to look up
+     * @param percent percentile from 0 to 100, 50 for the median
+     * @return double estimated rate, or NaN if there is no data
+     * @throws IllegalArgumentException if percent is not between 0 and 100
+     */
+    public double getApproxPercentile(CrimeMetric metric, double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100: " + percent);
+        }
+        return dataset.getApproxPercentile(metric.getRateColumn(), percent / 100);
+    } // end getApproxPercentile
 
-                    case "Theft":
-                        compareOption = this.crimeArray[i].getTheftRate();
-                        break;
+    /**
+     * This method streams a file through a KllSketch for each crime without storing the rows, so
+     * percentiles of files too large to load or sort can be estimated, getApproxPercentile estimates
+     * them from the loaded data
+     * @param file name of the csv file
+     * @param k accuracy of the sketches, see KllSketch
+     * @return KllSketch[] sketch of the rates of each crime, indexed by the ordinal of the CrimeMetric
+     * @throws IOException if the file cannot be opened or read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    public static KllSketch[] sketchRates(String file, int k) throws IOException {
+        CrimeMetric[] metrics = CrimeMetric.values();
+        KllSketch[] sketches = new KllSketch[metrics.length];
+        for (int m = 0; m < metrics.length; m++) {
+            sketches[m] = new KllSketch(k, m + 1);
+        }
+        forEachRow(file, row -> {
+            for (int m = 0; m < metrics.length; m++) {
+                sketches[m].update(row.getRate(metrics[m]));
+            }
+        });
+        return sketches;
+    } // end sketchRates
 
-                    case "Vehicle":
-                        compareOption = this.crimeArray[i].getVehicleTheftRate();
-                        break;
+    /**
+     * This method groups the rows by region, year or both and adds up every crime in each group in
+     * one pass per column
+     * @param key dimensions to group by
+     * @return GroupedStats with one group per key found in the data
+     */
+    public GroupedStats groupBy(GroupKey key) {
+        return new GroupedStats(dataset.getColumns(), key, parallelism);
+    } // end groupBy
 
-                } // end switch
-                if (minRate == -1) {
-                    minRate = compareOption;
-                } else if (minRate > compareOption) {
-                    minRate = compareOption;
-                    returnIndex = i;
-                } // end if
-            } // end for
-        }catch (NullPointerException n) {
-            System.out.println("Error: no data " + n.getMessage());
-        }
-        return crimeArray[returnIndex];
-    } // end getMinRate
+    /**
+     * This method passes the change of a column between each row and the row before it in the same
+     * region to the sink, reading the column directly so no row objects or strings are created. Rows of
+     * different regions are never compared, national data has one region.
+     * @param column column to compare, population or any count or rate column
+     * @param sink receives one change per pair of consecutive rows of a region, in the order of the
+     *             later row
+     * @throws IOException if the sink fails
+     */
+    public void forEachChange(CrimeColumn column, ChangeSink sink) throws IOException {
+        CrimeColumns data = dataset.getColumns();
+        int size = data.size();
+        RegionDictionary names = data.getRegionNames();
+
+        // the columns are read a block at a time so compact and off heap columns are not copied whole
+        int blockRows = Math.min(size, CrimeColumns.BLOCK_ROWS);
+        int[] years = new int[blockRows];
+        int[] regions = new int[blockRows];
+        int[] counts = column.isRate() ? null : new int[blockRows];
+        double[] rates = column.isRate() ? new double[blockRows] : null;
+
+        // year and value of the last row of each region, the next row of the region is compared with it
+        boolean[] seen = new boolean[names.size()];
+        int[] lastYear = new int[names.size()];
+        double[] lastValue = new double[names.size()];
+        for (int from = 0; from < size; from += blockRows) {
+            int count = Math.min(blockRows, size - from);
+            data.readInts(CrimeColumn.YEAR, from, count, years);
+            data.readRegions(from, count, regions);
+            if (column.isRate()) {
+                data.readRates(column, from, count, rates);
+            } else {
+                data.readInts(column, from, count, counts);
+            }
+
+            for (int i = 0; i < count; i++) {
+                int region = regions[i];
+                // whole numbers are exact as doubles, their difference is passed as a whole number
+                double value = column.isRate() ? rates[i] : counts[i];
+                if (seen[region]) {
+                    double difference = value - lastValue[region];
+                    sink.accept(names.getName(region), lastYear[region], years[i],
+                            (difference / lastValue[region]) * 100, difference);
+                }
+                seen[region] = true;
+                lastYear[region] = years[i];
+                lastValue[region] = value;
+            }
+        }
+    } // end forEachChange
+
+    /**
+     * This method writes the change of a column between consecutive years as the report of menu option
+     * A, one line at a time so the memory used does not grow with the number of rows
+     * @param column column to report, POPULATION for menu option A
+     * @param out writer that receives the report
+     * @throws IOException if the output fails
+     */
+    public void writeChanges(CrimeColumn column, AsciiWriter out) throws IOException {
+        String name = column == CrimeColumn.POPULATION ? "population" : column.getHeader().trim().toLowerCase(Locale.ROOT);
+        String middle = "% " + name + " change with a total increase of ";
 
+        boolean regional = dataset.getColumns().hasRegions();
+        out.write("Consecutive year ").write(name).write(" changes\n");
+        forEachChange(column, (region, fromYear, toYear, percent, difference) -> {
+            if (regional) {
+                out.write(region).write(": ");
+            }
+            out.write("Between ").writeLong(fromYear).write(" and ").writeLong(toYear).write(" there was a ")
+                    .writeFixed(percent, 4).write(middle);
+            if (column.isRate()) {
+                out.writeFixed(difference, 4);
+            } else {
+                out.writeLong((long) difference);
+            }
+            out.write('\n');
+        });
+    } // end writeChanges
 } // end class
@@ -0,0 +1,428 @@
+package crimestats;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * file:    CrimeStatsMetrics.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeStatsMetrics records where a CrimeStats spends its time: how long the file took to open
+ * and parse or the snapshot to load and save, the rows and bytes loaded per second, the bytes allocated
+ * while loading, the rows appended, and a LatencyHistogram of the queries of each kind with the bytes
+ * they allocated. The metrics can be read from code, written as json, or watched in a JMX console
+ * once register is called. On the command line --jmx registers them and --metrics=file writes them to
+ * the file as json when the program exits.
+ *
+ * The open time is only measured in reader mode, the mapped and parallel modes open the file inside
+ * their reader and count it as parse time. Allocation is counted on the thread that loads the file or
+ * answers the query, so the work of the parallel ingest mode and parallel queries on pool threads is
+ * not included, and it reads 0 on JVMs that cannot count allocation per thread.
+ */
+public class CrimeStatsMetrics implements CrimeStatsMetricsMBean {
+    // class fields
+
+    // name the metrics are registered under
+    public static final String OBJECT_NAME = "crimestats:type=Metrics";
+
+    // counts the bytes allocated by a thread, null when the JVM cannot
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    // data the metrics are recorded for, read for its QueryCache counts
+    private final CrimeStats crime;
+
+    // loading, written once by the thread that loads the file
+    private volatile String ingestMode = "none";
+    private volatile long openNanos = 0;
+    private volatile long parseNanos = 0;
+    private volatile long snapshotLoadNanos = 0;
+    private volatile long snapshotSaveNanos = 0;
+    private volatile long rowsLoaded = 0;
+    private volatile long bytesLoaded = 0;
+    private volatile long ingestAllocated = 0;
+
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong rowsAppended = new AtomicLong();
+
+    // query counts, replaced as a whole by resetQueries
+    private volatile QueryStats queries = new QueryStats();
+
+    /**
+     * constructor creates empty metrics
+     * @param crime data the metrics are recorded for
+     */
+    CrimeStatsMetrics(CrimeStats crime) {
+        this.crime = crime;
+    }
+
+    /**
+     * This method returns the number of bytes the current thread has allocated since it started
+     * @return long bytes, or 0 if the JVM cannot count them
+     */
+    static long allocatedBytes() {
+        return ALLOCATION == null ? 0 : Math.max(ALLOCATION.getCurrentThreadAllocatedBytes(), 0);
+    }
+
+    /**
+     * This method returns the bean counting allocation per thread if the JVM has one and it is enabled
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+                if (counting.isThreadAllocatedMemorySupported() && counting.isThreadAllocatedMemoryEnabled()) {
+                    return counting;
+                }
+            }
+        } catch (LinkageError | SecurityException e) {
+            // the JVM has no jdk.management module, allocation reads 0
+        }
+        return null;
+    } // end allocationBean
+
+    /**
+     * This method records the time taken to open the file
+     * @param nanos time in nanoseconds
+     */
+    void recordOpen(long nanos) {
+        openNanos = nanos;
+    }
+
+    /**
+     * This method records a parse of the file
+     * @param mode ingest mode the file was read with
+     * @param nanos time in nanoseconds, without the open time in reader mode
+     * @param rows number of rows loaded
+     * @param bytes number of bytes of the file loaded
+     */
+    void recordParse(IngestMode mode, long nanos, long rows, long bytes) {
+        ingestMode = mode.name().toLowerCase(Locale.ROOT);
+        parseNanos = nanos;
+        rowsLoaded = rows;
+        bytesLoaded = bytes;
+    }
+
+    /**
+     * This method records the columns being loaded from a snapshot instead of the file
+     * @param nanos time in nanoseconds
+     * @param rows number of rows loaded
+     * @param bytes number of bytes of the file the snapshot holds
+     */
+    void recordSnapshotLoad(long nanos, long rows, long bytes) {
+        ingestMode = "snapshot";
+        snapshotLoadNanos = nanos;
+        rowsLoaded = rows;
+        bytesLoaded = bytes;
+    }
+
+    /**
+     * This method records the columns being saved to a snapshot
+     * @param nanos time in nanoseconds
+     */
+    void recordSnapshotSave(long nanos) {
+        snapshotSaveNanos = nanos;
+    }
+
+    /**
+     * This method records the bytes allocated while loading
+     * @param bytes bytes allocated by the loading thread
+     */
+    void recordIngestAllocation(long bytes) {
+        ingestAllocated = Math.max(bytes, 0);
+    }
+
+    /**
+     * This method records rows being appended
+     * @param rows number of rows appended
+     */
+    void recordAppend(int rows) {
+        appends.incrementAndGet();
+        rowsAppended.addAndGet(rows);
+    }
+
+    /**
+     * This method records one query
+     * @param kind name of the kind of query, such as max or top
+     * @param nanos time taken to answer it in nanoseconds
+     * @param allocated bytes allocated while answering it
+     * @param error whether it was answered with an error
+     */
+    void recordQuery(String kind, long nanos, long allocated, boolean error) {
+        QueryStats stats = queries;
+        stats.all.record(nanos);
+        LatencyHistogram histogram = stats.kinds.get(kind);
+        if (histogram == null) {
+            histogram = stats.kinds.computeIfAbsent(kind, k -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+        stats.allocated.addAndGet(Math.max(allocated, 0));
+        if (error) {
+            stats.errors.incrementAndGet();
+        }
+    } // end recordQuery
+
+    /**
+     * This method returns the latencies of the queries of one kind
+     * @param kind name of the kind of query, such as max or top
+     * @return LatencyHistogram of the kind, or null if no query of the kind was answered
+     */
+    public LatencyHistogram getQueryLatency(String kind) {
+        return queries.kinds.get(kind);
+    }
+
+    /**
+     * This method returns the latencies of every query
+     * @return LatencyHistogram of every query
+     */
+    public LatencyHistogram getQueryLatency() {
+        return queries.all;
+    }
+
+    @Override
+    public String getIngestMode() {
+        return ingestMode;
+    }
+
+    @Override
+    public double getOpenMillis() {
+        return openNanos / 1e6;
+    }
+
+    @Override
+    public double getParseMillis() {
+        return parseNanos / 1e6;
+    }
+
+    @Override
+    public double getSnapshotLoadMillis() {
+        return snapshotLoadNanos / 1e6;
+    }
+
+    @Override
+    public double getSnapshotSaveMillis() {
+        return snapshotSaveNanos / 1e6;
+    }
+
+    @Override
+    public long getRowsLoaded() {
+        return rowsLoaded;
+    }
+
+    @Override
+    public long getBytesLoaded() {
+        return bytesLoaded;
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        return perSecond(rowsLoaded);
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return perSecond(bytesLoaded);
+    }
+
+    /**
+     * This method divides an amount loaded by the time taken to load it, from the snapshot or the file
+     */
+    private double perSecond(long amount) {
+        long nanos = ingestMode.equals("snapshot") ? snapshotLoadNanos : openNanos + parseNanos;
+        return nanos == 0 ? 0 : amount * 1e9 / nanos;
+    }
+
+    @Override
+    public long getIngestAllocatedBytes() {
+        return ingestAllocated;
+    }
+
+    @Override
+    public long getAppends() {
+        return appends.get();
+    }
+
+    @Override
+    public long getRowsAppended() {
+        return rowsAppended.get();
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.all.getCount();
+    }
+
+    @Override
+    public long getQueryErrors() {
+        return queries.errors.get();
+    }
+
+    @Override
+    public long getQueryAllocatedBytes() {
+        return queries.allocated.get();
+    }
+
+    @Override
+    public double getQueryMeanMicros() {
+        return queries.all.getMeanNanos() / 1e3;
+    }
+
+    @Override
+    public double getQueryP50Micros() {
+        return queries.all.getPercentileNanos(0.5) / 1e3;
+    }
+
+    @Override
+    public double getQueryP99Micros() {
+        return queries.all.getPercentileNanos(0.99) / 1e3;
+    }
+
+    @Override
+    public double getQueryMaxMicros() {
+        return queries.all.getMaxNanos() / 1e3;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return crime.getQueryCache().getHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return crime.getQueryCache().getMisses();
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return crime.getQueryCache().getEvictions();
+    }
+
+    @Override
+    public int getCacheSize() {
+        return crime.getQueryCache().size();
+    }
+
+    @Override
+    public String getJson() {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            AsciiWriter out = new AsciiWriter(body, 1024);
+            writeJson(out);
+            out.flush();
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void resetQueries() {
+        queries = new QueryStats();
+    }
+
+    /**
+     * This method registers the metrics with the platform MBean server under OBJECT_NAME
+     * @throws JMException if the metrics cannot be registered, for example when another CrimeStats in
+     * the JVM already registered its metrics
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * This method writes the metrics to a file as json
+     * @param file name of the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(String file) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(Paths.get(file));
+             AsciiWriter out = new AsciiWriter(stream)) {
+            writeJson(out);
+        }
+    }
+
+    /**
+     * This method writes the metrics as one json object followed by a line break
+     * @param out writer for the output
+     * @throws IOException if the output fails
+     */
+    public void writeJson(AsciiWriter out) throws IOException {
+        out.write("{\"ingest\":{\"mode\":");
+        QueryFormat.writeJsonText(ingestMode, out);
+        out.write(",\"open_ms\":").writeFixed(getOpenMillis(), 3);
+        out.write(",\"parse_ms\":").writeFixed(getParseMillis(), 3);
+        out.write(",\"snapshot_load_ms\":").writeFixed(getSnapshotLoadMillis(), 3);
+        out.write(",\"snapshot_save_ms\":").writeFixed(getSnapshotSaveMillis(), 3);
+        out.write(",\"rows\":").writeLong(rowsLoaded);
+        out.write(",\"bytes\":").writeLong(bytesLoaded);
+        out.write(",\"rows_per_sec\":").writeFixed(getRowsPerSecond(), 1);
+        out.write(",\"bytes_per_sec\":").writeFixed(getBytesPerSecond(), 1);
+        out.write(",\"allocated_bytes\":").writeLong(ingestAllocated);
+
+        out.write("},\"appends\":{\"count\":").writeLong(appends.get());
+        out.write(",\"rows\":").writeLong(rowsAppended.get());
+
+        QueryStats stats = queries;
+        out.write("},\"queries\":{\"count\":").writeLong(stats.all.getCount());
+        out.write(",\"errors\":").writeLong(stats.errors.get());
+        out.write(",\"allocated_bytes\":").writeLong(stats.allocated.get());
+        out.write(",\"latency_us\":");
+        writeLatency(stats.all, out);
+        // kinds in name order so the output is the same from run to run
+        out.write(",\"kinds\":{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> kind : new TreeMap<>(stats.kinds).entrySet()) {
+            out.write(first ? "" : ",");
+            first = false;
+            QueryFormat.writeJsonText(kind.getKey(), out);
+            out.write(':');
+            writeLatency(kind.getValue(), out);
+        }
+
+        QueryCache cache = crime.getQueryCache();
+        out.write("}},\"cache\":{\"capacity\":").writeLong(cache.getCapacity());
+        out.write(",\"size\":").writeLong(cache.size());
+        out.write(",\"hits\":").writeLong(cache.getHits());
+        out.write(",\"misses\":").writeLong(cache.getMisses());
+        out.write(",\"evictions\":").writeLong(cache.getEvictions());
+        out.write(",\"invalidations\":").writeLong(cache.getInvalidations());
+        out.write("}}\n");
+    } // end writeJson
+
+    /**
+     * This method writes the count and times of a histogram in microseconds as a json object
+     */
+    private static void writeLatency(LatencyHistogram histogram, AsciiWriter out) throws IOException {
+        out.write("{\"count\":").writeLong(histogram.getCount());
+        out.write(",\"mean\":").writeFixed(histogram.getMeanNanos() / 1e3, 3);
+        out.write(",\"p50\":").writeFixed(histogram.getPercentileNanos(0.5) / 1e3, 3);
+        out.write(",\"p90\":").writeFixed(histogram.getPercentileNanos(0.9) / 1e3, 3);
+        out.write(",\"p99\":").writeFixed(histogram.getPercentileNanos(0.99) / 1e3, 3);
+        out.write(",\"max\":").writeFixed(histogram.getMaxNanos() / 1e3, 3);
+        out.write('}');
+    }
+
+    /**
+     * QueryStats holds the counts of the queries since the metrics were created or last reset
+     */
+    private static final class QueryStats {
+        private final LatencyHistogram all = new LatencyHistogram();
+        private final ConcurrentHashMap<String, LatencyHistogram> kinds = new ConcurrentHashMap<>();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong allocated = new AtomicLong();
+    } // end QueryStats
+} // end class
@@ -0,0 +1,136 @@
+package crimestats;
+
+/**
+ * file:    CrimeStatsMetricsMBean.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeStatsMetricsMBean is the management interface of CrimeStatsMetrics, the attributes a JMX
+ * console such as jconsole shows under crimestats:type=Metrics. Times are in milliseconds for loading and
+ * microseconds for queries.
+ */
+public interface CrimeStatsMetricsMBean {
+    /**
+     * @return String ingest mode the file was read with, or snapshot if it was loaded from its snapshot
+     */
+    String getIngestMode();
+
+    /**
+     * @return double milliseconds taken to open the file, reader mode only
+     */
+    double getOpenMillis();
+
+    /**
+     * @return double milliseconds taken to parse the file
+     */
+    double getParseMillis();
+
+    /**
+     * @return double milliseconds taken to load the snapshot
+     */
+    double getSnapshotLoadMillis();
+
+    /**
+     * @return double milliseconds taken to save the snapshot
+     */
+    double getSnapshotSaveMillis();
+
+    /**
+     * @return long number of rows loaded
+     */
+    long getRowsLoaded();
+
+    /**
+     * @return long number of bytes of the file loaded
+     */
+    long getBytesLoaded();
+
+    /**
+     * @return double rows loaded per second
+     */
+    double getRowsPerSecond();
+
+    /**
+     * @return double bytes loaded per second
+     */
+    double getBytesPerSecond();
+
+    /**
+     * @return long bytes allocated by the loading thread while loading
+     */
+    long getIngestAllocatedBytes();
+
+    /**
+     * @return long number of times rows were appended
+     */
+    long getAppends();
+
+    /**
+     * @return long number of rows appended
+     */
+    long getRowsAppended();
+
+    /**
+     * @return long number of queries answered
+     */
+    long getQueries();
+
+    /**
+     * @return long number of queries answered with an error
+     */
+    long getQueryErrors();
+
+    /**
+     * @return long bytes allocated by the threads answering queries
+     */
+    long getQueryAllocatedBytes();
+
+    /**
+     * @return double mean query time in microseconds
+     */
+    double getQueryMeanMicros();
+
+    /**
+     * @return double median query time in microseconds
+     */
+    double getQueryP50Micros();
+
+    /**
+     * @return double 99th percentile query time in microseconds
+     */
+    double getQueryP99Micros();
+
+    /**
+     * @return double longest query time in microseconds
+     */
+    double getQueryMaxMicros();
+
+    /**
+     * @return long number of queries answered from the QueryCache
+     */
+    long getCacheHits();
+
+    /**
+     * @return long number of queries the QueryCache had to run
+     */
+    long getCacheMisses();
+
+    /**
+     * @return long number of results dropped because the QueryCache was full
+     */
+    long getCacheEvictions();
+
+    /**
+     * @return int number of results in the QueryCache
+     */
+    int getCacheSize();
+
+    /**
+     * @return String every metric as a json object, including the latency of each kind of query
+     */
+    String getJson();
+
+    /**
+     * This operation sets the query counts and latencies back to zero
+     */
+    void resetQueries();
+} // end interface
@@ -0,0 +1,150 @@
+package crimestats;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * file:    CrimeTail.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: CrimeTail appends new rows to a loaded CrimeStats without reading the data again. Watching a
+ * file, each poll parses only the bytes written since the last poll, up to the last complete line, so
+ * a row being written is picked up once its newline arrives. Watching a directory, each poll reads the
+ * csv files that appeared since the last poll in name order, including the files there when watching
+ * starts. Drop files should be written elsewhere and moved into the directory when complete. A file
+ * with a bad row is reported and skipped, a bad row in a watched file stops the tail.
+ */
+public class CrimeTail {
+    // class fields
+
+    private final CrimeStats crime;
+    private final Path path;
+    private final boolean directory;
+    private final CrimeCsvParser parser = new CrimeCsvParser();
+
+    // watched file: number of bytes already appended
+    private long offset;
+    // watched directory: files already appended
+    private final Set<Path> seen = new HashSet<>();
+
+    /**
+     * constructor watches a file or directory. A file is read from where the CrimeStats load stopped
+     * if it is the loaded file, and from the start otherwise.
+     * @param crime loaded data to append to
+     * @param path file or directory to watch
+     * @param loadedFile true if path is the file crime was loaded from
+     */
+    public CrimeTail(CrimeStats crime, Path path, boolean loadedFile) {
+        this.crime = crime;
+        this.path = path;
+        this.directory = Files.isDirectory(path);
+        this.offset = loadedFile ? crime.getLoadedSize() : 0;
+    }
+
+    /**
+     * This method appends the rows written since the last poll
+     * @return int number of rows appended
+     * @throws IOException if the watched file cannot be read or has become shorter
+     * @throws CrimeDataFormatException if a new row of the watched file cannot be parsed
+     */
+    public int poll() throws IOException {
+        return directory ? pollDirectory() : pollFile();
+    }
+
+    /**
+     * This method parses the complete lines added to the end of the watched file
+     */
+    private int pollFile() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < offset) {
+                throw new IOException(path + " is shorter than the " + offset + " bytes already read");
+            }
+
+            CrimeColumns rows = new CrimeColumns(16);
+            long position = offset;
+            long lineNumber = 1;
+
+            // parse the new bytes in windows, each ending with a complete line
+            while (position < size) {
+                long length = Math.min(MappedCsvReader.WINDOW_SIZE, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int start = position == 0 ? MappedCsvReader.skipByteOrderMark(buffer) : 0;
+                int end = MappedCsvReader.lastLineEnd(buffer, start, (int) length);
+                if (end < 0) {
+                    // the last line is still being written
+                    break;
+                }
+
+                try {
+                    lineNumber += MappedCsvReader.parseLines(buffer, start, end, lineNumber, position == 0, parser, rows);
+                } catch (CrimeDataFormatException format) {
+                    // number the line from the start of the file, only counted when there is an error
+                    throw new CrimeDataFormatException(countLines(channel, offset) + format.getLineNumber(),
+                            format.getColumnNumber(), format.getReason());
+                }
+                position += end;
+            }
+
+            crime.append(rows);
+            offset = position;
+            return rows.size();
+        }
+    } // end pollFile
+
+    /**
+     * This method reads the csv files that are new in the watched directory
+     */
+    private int pollDirectory() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.csv")) {
+            for (Path file : stream) {
+                if (!seen.contains(file) && Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(null);
+
+        int appended = 0;
+        for (Path file : files) {
+            seen.add(file);
+            CrimeColumns rows = new CrimeColumns(16);
+            try {
+                MappedCsvReader.read(file, rows);
+            } catch (CrimeDataFormatException format) {
+                System.err.println("Error in file " + file + ": " + format.getMessage() + ", file skipped");
+                continue;
+            }
+            crime.append(rows);
+            appended += rows.size();
+        }
+        return appended;
+    } // end pollDirectory
+
+    /**
+     * This method counts the lines before a position in the file
+     */
+    private static long countLines(FileChannel channel, long end) throws IOException {
+        long lines = 0;
+        for (long position = 0; position < end; position += MappedCsvReader.WINDOW_SIZE) {
+            long length = Math.min(MappedCsvReader.WINDOW_SIZE, end - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == '\n') {
+                    lines++;
+                }
+            }
+        }
+        return lines;
+    } // end countLines
+} // end class
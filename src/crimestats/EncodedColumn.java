@@ -0,0 +1,375 @@
+package crimestats;
+
+/**
+ * file:    EncodedColumn.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: EncodedColumn stores one column of CrimeColumns in as few bits per row as its values need,
+ * for ColumnStorage.COMPACT. Whole numbers are stored by frame of reference, each row holds its value
+ * minus the lowest value of the column packed into just enough bits for the highest, so years take 7
+ * bits and region codes 1 to 6. A column whose values change little from one row to the next, such as
+ * the population of national data, is stored as the difference from the row before instead when that
+ * is smaller, with the full value of every 64th row kept so a row can be read without adding up the
+ * whole column. Rate columns are stored as whole numbers of the fewest decimal places that hold every
+ * rate, hundredths for rates with two decimals, and only when every one converts back to the same
+ * double, otherwise the column stays a double array.
+ *
+ * Scans for the lowest and highest value compare the packed numbers without converting them, the frame
+ * of reference and the scale do not change which value is larger.
+ */
+public final class EncodedColumn {
+    // class fields
+
+    // rows between the full values of a column stored as differences
+    static final int BLOCK = 64;
+    // most decimal places of a rate stored as a whole number
+    private static final int MAX_DECIMALS = 4;
+    // largest scaled rate, doubles hold every whole number up to it exactly
+    private static final long MAX_SCALED = 1L << 53;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000};
+
+    private final int size;
+    // bits per row, 0 when every row holds the same value
+    private final int bits;
+    private final long mask;
+    // lowest value, or lowest difference, subtracted before packing
+    private final long base;
+    private final long[] words;
+    // value of the first row of each block, null unless the rows are stored as differences
+    private final long[] checkpoints;
+    // rates are the stored whole number divided by the scale, whole number columns have a scale of 1
+    private final long scale;
+    private final double divisor;
+
+    /**
+     * constructor keeps the packed rows built by encode
+     */
+    private EncodedColumn(int size, int bits, long base, long[] words, long[] checkpoints, long scale) {
+        this.size = size;
+        this.bits = bits;
+        this.mask = bits == 64 ? -1L : (1L << bits) - 1;
+        this.base = base;
+        this.words = words;
+        this.checkpoints = checkpoints;
+        this.scale = scale;
+        this.divisor = scale;
+    }
+
+    /**
+     * This method encodes a whole number column
+     * @param values column array, only the first size values are rows
+     * @param size number of rows
+     * @return EncodedColumn of the rows
+     */
+    static EncodedColumn encodeInts(int[] values, int size) {
+        long[] longs = new long[size];
+        for (int i = 0; i < size; i++) {
+            longs[i] = values[i];
+        }
+        return encode(longs, 1);
+    } // end encodeInts
+
+    /**
+     * This method encodes a rate column as scaled whole numbers
+     * @param values column array, only the first size values are rows
+     * @param size number of rows
+     * @return EncodedColumn of the rows, or null if a rate has more than 4 decimal places, is too large
+     * or is not a number, the column is then kept as doubles
+     */
+    static EncodedColumn encodeRates(double[] values, int size) {
+        // find the fewest decimal places that hold every rate
+        int decimals = 0;
+        for (int i = 0; i < size; i++) {
+            while (scaled(values[i], POWERS_OF_TEN[decimals]) == Long.MIN_VALUE) {
+                if (decimals == MAX_DECIMALS) {
+                    return null;
+                }
+                decimals++;
+            }
+        }
+
+        long scale = POWERS_OF_TEN[decimals];
+        long[] longs = new long[size];
+        for (int i = 0; i < size; i++) {
+            longs[i] = scaled(values[i], scale);
+            if (longs[i] == Long.MIN_VALUE) {
+                return null;
+            }
+        }
+        return encode(longs, scale);
+    } // end encodeRates
+
+    /**
+     * This method converts a rate to a whole number of 1/scale units
+     * @return long scaled rate, or Long.MIN_VALUE if it does not convert back to exactly the same double
+     */
+    private static long scaled(double value, long scale) {
+        double product = value * scale;
+        if (!(Math.abs(product) < MAX_SCALED)) {
+            return Long.MIN_VALUE;
+        }
+        long whole = Math.round(product);
+        if (Double.doubleToRawLongBits(whole / (double) scale) != Double.doubleToRawLongBits(value)) {
+            return Long.MIN_VALUE;
+        }
+        return whole;
+    } // end scaled
+
+    /**
+     * This method packs the values by frame of reference or by differences, whichever takes fewer bits
+     */
+    private static EncodedColumn encode(long[] values, long scale) {
+        int size = values.length;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long minDelta = Long.MAX_VALUE;
+        long maxDelta = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+            if (i % BLOCK != 0) {
+                long delta = values[i] - values[i - 1];
+                minDelta = Math.min(minDelta, delta);
+                maxDelta = Math.max(maxDelta, delta);
+            }
+        }
+        if (size == 0) {
+            return new EncodedColumn(0, 0, 0, new long[0], null, scale);
+        }
+
+        int frameBits = width(max - min);
+        int blocks = (size + BLOCK - 1) / BLOCK;
+        int deltaBits = minDelta > maxDelta ? 0 : width(maxDelta - minDelta);
+        boolean delta = (long) size * deltaBits + (long) blocks * 64 < (long) size * frameBits;
+
+        int bits = delta ? deltaBits : frameBits;
+        long base = delta ? (minDelta > maxDelta ? 0 : minDelta) : min;
+        long[] words = new long[(int) (((long) size * bits + 63) / 64)];
+        long[] checkpoints = delta ? new long[blocks] : null;
+        for (int i = 0; i < size; i++) {
+            long code;
+            if (!delta) {
+                code = values[i] - base;
+            } else if (i % BLOCK == 0) {
+                checkpoints[i / BLOCK] = values[i];
+                code = 0;
+            } else {
+                code = values[i] - values[i - 1] - base;
+            }
+            pack(words, i, bits, code);
+        }
+        return new EncodedColumn(size, bits, base, words, checkpoints, scale);
+    } // end encode
+
+    /**
+     * This method returns the number of bits needed for a number from 0 to range
+     */
+    private static int width(long range) {
+        return 64 - Long.numberOfLeadingZeros(range);
+    }
+
+    /**
+     * This method writes the packed number of a row, the row may straddle two words
+     */
+    private static void pack(long[] words, int row, int bits, long code) {
+        if (bits == 0) {
+            return;
+        }
+        long position = (long) row * bits;
+        int word = (int) (position >>> 6);
+        int shift = (int) (position & 63);
+        words[word] |= code << shift;
+        if (shift + bits > 64) {
+            words[word + 1] |= code >>> (64 - shift);
+        }
+    } // end pack
+
+    /**
+     * This method reads the packed number of a row
+     */
+    private long code(int row) {
+        if (bits == 0) {
+            return 0;
+        }
+        long position = (long) row * bits;
+        int word = (int) (position >>> 6);
+        int shift = (int) (position & 63);
+        long code = words[word] >>> shift;
+        if (shift + bits > 64) {
+            code |= words[word + 1] << (64 - shift);
+        }
+        return code & mask;
+    } // end code
+
+    /**
+     * getter method to get the number of rows
+     * @return int number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * getter method to get the number of bits each row takes
+     * @return int bits per row
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * This method checks if the rows are stored as the difference from the row before
+     * @return true for delta encoding, false for frame of reference
+     */
+    public boolean isDelta() {
+        return checkpoints != null;
+    }
+
+    /**
+     * getter method to get what the stored whole numbers are divided by to give the value
+     * @return long 1 for whole number columns, a power of ten for rates
+     */
+    public long getScale() {
+        return scale;
+    }
+
+    /**
+     * This method returns the stored whole number of a row, a row stored as a difference adds up the
+     * differences from the start of its block
+     * @param row row index starting at 0
+     * @return long value of the row times the scale
+     */
+    long getLong(int row) {
+        if (checkpoints == null) {
+            return base + code(row);
+        }
+        int first = row - row % BLOCK;
+        long value = checkpoints[row / BLOCK];
+        for (int i = first + 1; i <= row; i++) {
+            value += base + code(i);
+        }
+        return value;
+    } // end getLong
+
+    /**
+     * This method returns the value of a row of a whole number column
+     * @param row row index starting at 0
+     * @return int value
+     */
+    int getInt(int row) {
+        return (int) getLong(row);
+    }
+
+    /**
+     * This method returns the value of a row of a rate column
+     * @param row row index starting at 0
+     * @return double rate, exactly the double that was encoded
+     */
+    double getRate(int row) {
+        return getLong(row) / divisor;
+    }
+
+    /**
+     * This method decodes every row of a whole number column into a new array
+     * @return int[] value of every row
+     */
+    int[] toIntArray() {
+        int[] values = new int[size];
+        decodeInts(0, size, values);
+        return values;
+    } // end toIntArray
+
+    /**
+     * This method decodes every row of a rate column into a new array
+     * @return double[] rate of every row
+     */
+    double[] toRateArray() {
+        double[] values = new double[size];
+        decodeRates(0, size, values);
+        return values;
+    } // end toRateArray
+
+    /**
+     * This method decodes rows of a whole number column into an array
+     * @param from first row
+     * @param count number of rows
+     * @param into array that receives the rows from index 0
+     */
+    void decodeInts(int from, int count, int[] into) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = i == 0 ? getLong(from) : next(from + i, value);
+            into[i] = (int) value;
+        }
+    } // end decodeInts
+
+    /**
+     * This method decodes rows of a rate column into an array
+     * @param from first row
+     * @param count number of rows
+     * @param into array that receives the rows from index 0
+     */
+    void decodeRates(int from, int count, double[] into) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = i == 0 ? getLong(from) : next(from + i, value);
+            into[i] = value / divisor;
+        }
+    } // end decodeRates
+
+    /**
+     * This method returns the stored whole number of a row in a scan from the start of a block, given
+     * the number of the row before
+     */
+    private long next(int row, long previous) {
+        if (checkpoints == null) {
+            return base + code(row);
+        }
+        return row % BLOCK == 0 ? checkpoints[row / BLOCK] : previous + base + code(row);
+    }
+
+    /**
+     * This method finds the row with the highest or lowest value from one row to another, comparing the
+     * packed numbers of a frame of reference column directly
+     * @param from first row, inclusive
+     * @param to last row, exclusive
+     * @param highest true for the highest value, false for the lowest
+     * @return int row index, the first row wins a tie, or -1 if the range is empty
+     */
+    int extremeRow(int from, int to, boolean highest) {
+        if (from >= to) {
+            return -1;
+        }
+        int best = from;
+        if (checkpoints == null) {
+            long bestCode = code(from);
+            for (int i = from + 1; i < to; i++) {
+                long code = code(i);
+                if (highest ? code > bestCode : code < bestCode) {
+                    bestCode = code;
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        long value = getLong(from);
+        long bestValue = value;
+        for (int i = from + 1; i < to; i++) {
+            value = next(i, value);
+            if (highest ? value > bestValue : value < bestValue) {
+                bestValue = value;
+                best = i;
+            }
+        }
+        return best;
+    } // end extremeRow
+
+    /**
+     * This method estimates the heap taken by the packed rows
+     * @return long bytes
+     */
+    long memoryBytes() {
+        return 8L * words.length + (checkpoints == null ? 0 : 8L * checkpoints.length) + 64;
+    }
+} // end class
@@ -0,0 +1,48 @@
+package crimestats;
+
+/**
+ * file:    GroupKey.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: GroupKey selects the dimensions CrimeStats.groupBy groups rows by: the region, the year, or
+ * both. It can be written in a query as region, year or region-year.
+ */
+public enum GroupKey {
+    // one group per region over every year
+    REGION,
+    // one group per year over every region
+    YEAR,
+    // one group per region and year
+    REGION_YEAR;
+
+    /**
+     * This method checks if groups are split by region
+     * @return true for REGION and REGION_YEAR
+     */
+    public boolean hasRegion() {
+        return this != YEAR;
+    }
+
+    /**
+     * This method checks if groups are split by year
+     * @return true for YEAR and REGION_YEAR
+     */
+    public boolean hasYear() {
+        return this != REGION;
+    }
+
+    /**
+     * This method finds the key for a name such as region or region-year, ignoring case
+     * @param name name of the key, with - or _ between dimensions
+     * @return GroupKey for the name
+     * @throws IllegalArgumentException if the name is not a key
+     */
+    public static GroupKey fromName(String name) {
+        for (GroupKey key : values()) {
+            if (key.name().equalsIgnoreCase(name.trim().replace('-', '_'))) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("unknown group: " + name + ", expected region, year or region-year");
+    } // end fromName
+} // end enum
@@ -0,0 +1,353 @@
+package crimestats;
+
+import java.util.Arrays;
+
+/**
+ * file:    GroupedStats.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: GroupedStats holds the statistics of every crime for each group of rows sharing a region,
+ * a year, or both: the number of rows, the total population and count, the rate of the totals, and the
+ * lowest, highest and mean rate. Groups are found with a hash table of primitive long keys so no
+ * object is created per row, then numbered in key order, by region in order of first appearance and
+ * then by year. Each column is then added to its groups in its own pass, so the passes read
+ * contiguous blocks of rows, and on large data the passes of the different crimes run at the same time.
+ */
+public class GroupedStats {
+    // class fields, the statistics are indexed by the ordinal of the CrimeMetric and then the group
+
+    private static final int METRICS = CrimeMetric.values().length;
+    // multiplier spreading the keys over the hash table
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final GroupKey key;
+    private final RegionDictionary regionNames;
+    private final int groups;
+    private final int[] region;
+    private final int[] year;
+    private final int[] rows;
+    private final long[] population;
+    private final long[][] countSum = new long[METRICS][];
+    private final double[][] rateSum = new double[METRICS][];
+    private final double[][] min = new double[METRICS][];
+    private final double[][] max = new double[METRICS][];
+
+    /**
+     * constructor groups the rows of the columns and adds up every crime in each group
+     * @param columns columns to group
+     * @param key dimensions to group by
+     * @param parallelism decides whether the passes over the columns run at the same time
+     */
+    GroupedStats(CrimeColumns columns, GroupKey key, Parallelism parallelism) {
+        this.key = key;
+        this.regionNames = columns.getRegionNames();
+        int size = columns.size();
+        int blockRows = Math.min(size, CrimeColumns.BLOCK_ROWS);
+
+        // give each key an id in order of first appearance, reading the columns a block at a time so
+        // compact and off heap columns are not copied whole
+        int[] groupOf = new int[size];
+        KeyTable table = new KeyTable();
+        int[] regions = new int[blockRows];
+        int[] years = new int[blockRows];
+        for (int from = 0; from < size; from += blockRows) {
+            int length = Math.min(blockRows, size - from);
+            columns.readRegions(from, length, regions);
+            columns.readInts(CrimeColumn.YEAR, from, length, years);
+            for (int i = 0; i < length; i++) {
+                groupOf[from + i] = table.idOf(keyOf(regions[i], years[i]));
+            }
+        }
+
+        // number the groups in key order, each sorted key is looked up again to find its id
+        int count = table.size;
+        long[] sorted = Arrays.copyOf(table.keys, count);
+        Arrays.sort(sorted);
+        int[] rank = new int[count];
+        boolean inOrder = true;
+        for (int g = 0; g < count; g++) {
+            int id = table.idOf(sorted[g]);
+            rank[id] = g;
+            inOrder &= id == g;
+        }
+        if (!inOrder) {
+            for (int i = 0; i < size; i++) {
+                groupOf[i] = rank[groupOf[i]];
+            }
+        }
+
+        this.groups = count;
+        this.region = new int[count];
+        this.year = new int[count];
+        for (int g = 0; g < count; g++) {
+            region[g] = regionOf(sorted[g]);
+            year[g] = yearOf(sorted[g]);
+        }
+
+        // add each column to the groups in its own pass, one task for the row counts and population
+        // and one for each crime
+        this.rows = new int[count];
+        this.population = new long[count];
+        CrimeMetric[] metrics = CrimeMetric.values();
+        Runnable[] passes = new Runnable[metrics.length + 1];
+        passes[0] = () -> {
+            int[] people = new int[blockRows];
+            for (int from = 0; from < size; from += blockRows) {
+                int length = Math.min(blockRows, size - from);
+                columns.readInts(CrimeColumn.POPULATION, from, length, people);
+                for (int i = 0; i < length; i++) {
+                    int g = groupOf[from + i];
+                    rows[g]++;
+                    population[g] += people[i];
+                }
+            }
+        };
+        for (CrimeMetric metric : metrics) {
+            passes[metric.ordinal() + 1] = () -> addMetric(columns, metric, groupOf, size, blockRows);
+        }
+        parallelism.runAll(size, passes);
+    } // end constructor
+
+    /**
+     * This method adds the count and rate of one crime in every row to the groups, reading the two
+     * columns a block of rows at a time
+     */
+    private void addMetric(CrimeColumns columns, CrimeMetric metric, int[] groupOf, int size, int blockRows) {
+        int[] counts = new int[blockRows];
+        double[] rates = new double[blockRows];
+        long[] sums = new long[groups];
+        double[] rateSums = new double[groups];
+        double[] lows = new double[groups];
+        double[] highs = new double[groups];
+        Arrays.fill(lows, Double.POSITIVE_INFINITY);
+        Arrays.fill(highs, Double.NEGATIVE_INFINITY);
+
+        for (int from = 0; from < size; from += blockRows) {
+            int count = Math.min(blockRows, size - from);
+            columns.readInts(metric.getCountColumn(), from, count, counts);
+            columns.readRates(metric.getRateColumn(), from, count, rates);
+            for (int i = 0; i < count; i++) {
+                int g = groupOf[from + i];
+                double rate = rates[i];
+                sums[g] += counts[i];
+                rateSums[g] += rate;
+                if (rate < lows[g]) {
+                    lows[g] = rate;
+                }
+                if (rate > highs[g]) {
+                    highs[g] = rate;
+                }
+            }
+        }
+
+        int m = metric.ordinal();
+        countSum[m] = sums;
+        rateSum[m] = rateSums;
+        min[m] = lows;
+        max[m] = highs;
+    } // end addMetric
+
+    /**
+     * This method returns the hash key of a row, ordered by region and then year. The year is stored
+     * offset to an unsigned number so negative years still sort first.
+     */
+    private long keyOf(int regionCode, int rowYear) {
+        switch (key) {
+            case REGION:
+                return regionCode;
+            case YEAR:
+                return rowYear;
+            default:
+                return ((long) regionCode << 32) | ((long) rowYear - Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * This method returns the region code of a key, 0 if the key has no region
+     */
+    private int regionOf(long k) {
+        switch (key) {
+            case REGION:
+                return (int) k;
+            case YEAR:
+                return 0;
+            default:
+                return (int) (k >>> 32);
+        }
+    }
+
+    /**
+     * This method returns the year of a key, 0 if the key has no year
+     */
+    private int yearOf(long k) {
+        switch (key) {
+            case REGION:
+                return 0;
+            case YEAR:
+                return (int) k;
+            default:
+                return (int) ((k & 0xffffffffL) + Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * getter method to get the dimensions the rows were grouped by
+     * @return GroupKey of the groups
+     */
+    public GroupKey getKey() {
+        return key;
+    }
+
+    /**
+     * getter method to get the number of groups
+     * @return int number of groups
+     */
+    public int size() {
+        return groups;
+    }
+
+    /**
+     * This method returns the region of a group
+     * @param group group index
+     * @return String region name, or null if the groups are not split by region
+     */
+    public String getRegion(int group) {
+        return key.hasRegion() ? regionNames.getName(region[group]) : null;
+    }
+
+    /**
+     * This method returns the year of a group
+     * @param group group index
+     * @return int year, or 0 if the groups are not split by year
+     */
+    public int getYear(int group) {
+        return year[group];
+    }
+
+    /**
+     * This method returns the number of rows in a group
+     * @param group group index
+     * @return int number of rows
+     */
+    public int getRowCount(int group) {
+        return rows[group];
+    }
+
+    /**
+     * This method returns the total population of the rows in a group
+     * @param group group index
+     * @return long sum of the population
+     */
+    public long getPopulation(int group) {
+        return population[group];
+    }
+
+    /**
+     * This method returns the total number of a crime in a group
+     * @param metric crime
+     * @param group group index
+     * @return long sum of the counts
+     */
+    public long getSum(CrimeMetric metric, int group) {
+        return countSum[metric.ordinal()][group];
+    }
+
+    /**
+     * This method returns the rate per 100,000 people of the totals of a group, the rate of a year
+     * grouped over every region is the national rate
+     * @param metric crime
+     * @param group group index
+     * @return double rate, or NaN if the group has no population
+     */
+    public double getRate(CrimeMetric metric, int group) {
+        return population[group] == 0 ? Double.NaN
+                : countSum[metric.ordinal()][group] * 100000.0 / population[group];
+    }
+
+    /**
+     * This method returns the mean of the rates of a crime over the rows of a group
+     * @param metric crime
+     * @param group group index
+     * @return double mean rate
+     */
+    public double getMean(CrimeMetric metric, int group) {
+        return rateSum[metric.ordinal()][group] / rows[group];
+    }
+
+    /**
+     * This method returns the lowest rate of a crime in a group
+     * @param metric crime
+     * @param group group index
+     * @return double lowest rate
+     */
+    public double getMin(CrimeMetric metric, int group) {
+        return min[metric.ordinal()][group];
+    }
+
+    /**
+     * This method returns the highest rate of a crime in a group
+     * @param metric crime
+     * @param group group index
+     * @return double highest rate
+     */
+    public double getMax(CrimeMetric metric, int group) {
+        return max[metric.ordinal()][group];
+    }
+    /**
+     * KeyTable gives each long key an id in order of first appearance, using open addressing with
+     * linear probing in a table kept at most half full
+     */
+    private static final class KeyTable {
+        // keys in order of their ids
+        private long[] keys = new long[16];
+        private int size = 0;
+        private long[] slotKeys = new long[64];
+        // id + 1 of the key in each slot, 0 is an empty slot
+        private int[] slotIds = new int[64];
+        private int shift = 64 - 6;
+
+        /**
+         * This method returns the id of a key, giving it the next id if it is new
+         */
+        private int idOf(long k) {
+            int mask = slotIds.length - 1;
+            int slot = (int) ((k * HASH_MULTIPLIER) >>> shift);
+            while (slotIds[slot] != 0) {
+                if (slotKeys[slot] == k) {
+                    return slotIds[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size] = k;
+            size++;
+            slotKeys[slot] = k;
+            slotIds[slot] = size;
+            if (size * 2 > slotIds.length) {
+                grow();
+            }
+            return size - 1;
+        } // end idOf
+
+        /**
+         * This method doubles the table and puts every key back in it
+         */
+        private void grow() {
+            slotKeys = new long[slotKeys.length * 2];
+            slotIds = new int[slotIds.length * 2];
+            shift--;
+            int mask = slotIds.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = (int) ((keys[id] * HASH_MULTIPLIER) >>> shift);
+                while (slotIds[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slotKeys[slot] = keys[id];
+                slotIds[slot] = id + 1;
+            }
+        } // end grow
+    } // end KeyTable
+} // end class
@@ -0,0 +1,40 @@
+package crimestats;
+
+/**
+ * file:    IngestMode.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: IngestMode selects how CrimeStats reads the crime stats csv file. It can be chosen on the
+ * command line with --ingest=name, for example --ingest=mapped.
+ */
+public enum IngestMode {
+    // read the file line by line with a BufferedReader
+    READER,
+    // memory map the file and parse the ASCII bytes directly
+    MAPPED,
+    // memory map the file and parse ranges of it on all cores
+    PARALLEL,
+    // memory map the file, index where its rows are and decode each column the first time it is read
+    LAZY;
+
+    /**
+     * This method finds the --ingest=name option in the command line arguments
+     * @param args command line arguments
+     * @return IngestMode named by the option, or READER if there is no option
+     * @throws IllegalArgumentException if the name is not an ingest mode
+     */
+    public static IngestMode fromArgs(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--ingest=")) {
+                String name = arg.substring("--ingest=".length());
+                for (IngestMode mode : values()) {
+                    if (mode.name().equalsIgnoreCase(name)) {
+                        return mode;
+                    }
+                }
+                throw new IllegalArgumentException(name);
+            }
+        }
+        return READER;
+    } // end fromArgs
+} // end enum
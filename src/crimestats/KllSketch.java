@@ -0,0 +1,218 @@
+package crimestats;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * file:    KllSketch.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: KllSketch estimates percentiles of a stream of values in a fixed amount of memory, for
+ * files too large to load and sort. It is the KLL quantile sketch: values are kept in levels where each
+ * value at level h stands for 2^h values of the stream. When the sketch is full the lowest full level
+ * is sorted and every other value, starting at a random one of the first two, moves up a level. Upper
+ * levels may hold k values and each level below holds two thirds of the level above it, so about 3k
+ * values are kept in total. The rank of an estimated percentile is usually within 1.7 / k of the
+ * true rank, about 1% of the values for the default k of 200. Sketches of parts of a stream can be
+ * merged into a sketch of the whole stream.
+ */
+public class KllSketch {
+    // class fields
+
+    private static final int DEFAULT_K = 200;
+    private static final double LEVEL_RATIO = 2.0 / 3.0;
+
+    private final int k;
+    private final Random random;
+
+    // values kept at each level, items[h][0] to items[h][sizes[h] - 1]
+    private double[][] items = new double[0][];
+    private int[] sizes = new int[0];
+    private int levelCount = 0;
+
+    private long count = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * constructor creates an empty sketch with k of 200
+     */
+    public KllSketch() {
+        this(DEFAULT_K, 1);
+    }
+
+    /**
+     * constructor creates an empty sketch
+     * @param k number of values kept at the top level, larger is more accurate, at least 8
+     * @param seed seed for choosing which values move up a level, the same seed gives the same estimates
+     */
+    public KllSketch(int k, long seed) {
+        this.k = Math.max(k, 8);
+        this.random = new Random(seed);
+        addLevel();
+    }
+
+    /**
+     * This method adds a value of the stream, NaN is ignored
+     * @param value value to add
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        add(0, value);
+        compress();
+    }
+
+    /**
+     * This method adds every value counted by another sketch to this one
+     * @param other sketch of another part of the stream
+     */
+    public void merge(KllSketch other) {
+        for (int h = 0; h < other.levelCount; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                add(h, other.items[h][i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress();
+    }
+
+    /**
+     * getter method to get the number of values added
+     * @return long number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * This method estimates the value below which a fraction of the values fall. The fractions 0 and 1
+     * return the exact lowest and highest value.
+     * @param fraction fraction of the values from 0 to 1, 0.5 for the median
+     * @return double estimated value, or NaN if no values were added
+     * @throws IllegalArgumentException if the fraction is not between 0 and 1
+     */
+    public double quantile(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("fraction must be between 0 and 1: " + fraction);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction == 0) {
+            return min;
+        }
+        if (fraction == 1) {
+            return max;
+        }
+
+        // walk the kept values in order, each level is sorted and the smallest next value is taken
+        for (int h = 0; h < levelCount; h++) {
+            Arrays.sort(items[h], 0, sizes[h]);
+        }
+        int[] next = new int[levelCount];
+        double target = fraction * count;
+        long weight = 0;
+
+        while (true) {
+            int level = -1;
+            for (int h = 0; h < levelCount; h++) {
+                if (next[h] < sizes[h] && (level < 0 || items[h][next[h]] < items[level][next[level]])) {
+                    level = h;
+                }
+            }
+            if (level < 0) {
+                return max;
+            }
+            double value = items[level][next[level]++];
+            weight += 1L << level;
+            if (weight >= target) {
+                return value;
+            }
+        }
+    } // end quantile
+
+    /**
+     * This method adds a value to a level, growing the level when it is full
+     */
+    private void add(int level, double value) {
+        while (level >= levelCount) {
+            addLevel();
+        }
+        if (sizes[level] == items[level].length) {
+            items[level] = Arrays.copyOf(items[level], Math.max(8, items[level].length * 2));
+        }
+        items[level][sizes[level]++] = value;
+    }
+
+    /**
+     * This method adds an empty level at the top
+     */
+    private void addLevel() {
+        items = Arrays.copyOf(items, levelCount + 1);
+        sizes = Arrays.copyOf(sizes, levelCount + 1);
+        items[levelCount] = new double[8];
+        levelCount++;
+    }
+
+    /**
+     * This method returns how many values a level may hold, two thirds of the level above it
+     */
+    private int capacity(int level) {
+        int depth = levelCount - 1 - level;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(LEVEL_RATIO, depth)));
+    }
+
+    /**
+     * This method compacts the lowest full level until the sketch holds no more values than the
+     * capacities of its levels allow
+     */
+    private void compress() {
+        while (true) {
+            int retained = 0;
+            int allowed = 0;
+            for (int h = 0; h < levelCount; h++) {
+                retained += sizes[h];
+                allowed += capacity(h);
+            }
+            if (retained <= allowed) {
+                return;
+            }
+
+            for (int h = 0; h < levelCount; h++) {
+                if (sizes[h] >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    } // end compress
+
+    /**
+     * This method sorts a level and moves every other value up a level, starting at a random one of the
+     * first two. A value left over from an odd size stays.
+     */
+    private void compact(int level) {
+        int size = sizes[level];
+        double[] values = items[level];
+        Arrays.sort(values, 0, size);
+
+        int pairs = size - (size % 2);
+        for (int i = random.nextBoolean() ? 1 : 0; i < pairs; i += 2) {
+            add(level + 1, values[i]);
+        }
+        // items[level] may have been replaced if adding created a level, values is still the old array
+        if (size % 2 == 1) {
+            items[level][0] = values[size - 1];
+            sizes[level] = 1;
+        } else {
+            sizes[level] = 0;
+        }
+    } // end compact
+} // end class
@@ -0,0 +1,93 @@
+package crimestats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * file:    LatencyHistogram.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: LatencyHistogram counts how long an operation took in buckets that double in width, 1 ns,
+ * 2 ns, 4 ns and so on, so recording a time is a few atomic adds and the memory used does not grow
+ * with the number of times recorded. Percentiles are reported as the upper bound of the bucket they
+ * fall in, at most twice the true value. Times can be recorded from several threads at once.
+ */
+public class LatencyHistogram {
+    // class fields
+
+    // bucket b counts times from 2^(b-1) to 2^b - 1 nanoseconds, bucket 0 counts 0
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * This method records one time
+     * @param nanos time taken in nanoseconds
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * getter method to get the number of times recorded
+     * @return long count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * getter method to get the sum of the times recorded
+     * @return long nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * getter method to get the longest time recorded
+     * @return long nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * This method returns the mean of the times recorded
+     * @return double nanoseconds, or 0 if nothing was recorded
+     */
+    public double getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / (double) n;
+    }
+
+    /**
+     * This method returns a time that a fraction of the recorded times are at or below
+     * @param fraction fraction from 0 to 1, 0.99 for the 99th percentile
+     * @return long upper bound of the bucket in nanoseconds, never more than the longest time, 0 if
+     * nothing was recorded
+     */
+    public long getPercentileNanos(double fraction) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= target) {
+                long upper = b == 0 ? 0 : b == 63 ? Long.MAX_VALUE : (1L << b) - 1;
+                return Math.min(upper, maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    } // end getPercentileNanos
+} // end class
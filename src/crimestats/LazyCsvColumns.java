@@ -0,0 +1,339 @@
+package crimestats;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * file:    LazyCsvColumns.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: LazyCsvColumns loads the crime stats csv file for IngestMode.LAZY. Loading memory maps the
+ * file and makes one pass over its bytes that only records where each data row starts and ends and
+ * checks that it has the right number of fields, 8 bytes per row. A column is decoded into its int or
+ * double array the first time a query reads it, by skipping to its field in every row, so a session
+ * that only asks about murder pays for the year, murder and murder rate columns and not the other 17.
+ * The file stays mapped while the columns are in use, so it must not be truncated or rewritten in
+ * place meanwhile, appending to it is safe. A field that is not a number is reported with its line and
+ * column when its column is decoded, as a CrimeDataFormatException thrown by the query.
+ */
+public class LazyCsvColumns {
+    // class fields
+
+    // column of each int and rate slot, used to find the field to decode
+    private static final CrimeColumn[] INT_SLOTS = new CrimeColumn[CrimeColumn.INT_COLUMNS];
+    private static final CrimeColumn[] RATE_SLOTS = new CrimeColumn[CrimeColumn.RATE_COLUMNS];
+
+    static {
+        for (CrimeColumn column : CrimeColumn.values()) {
+            if (column.isRate()) {
+                RATE_SLOTS[column.getSlot()] = column;
+            } else {
+                INT_SLOTS[column.getSlot()] = column;
+            }
+        }
+    }
+
+    private final long fileSize;
+    // mapped windows of the file, each window ends on a line boundary
+    private final MappedByteBuffer[] windows;
+    // first row of each window, and the row count after the last window
+    private final int[] windowFirstRow;
+    // line number of the first byte of each window, used to number the line of a bad field
+    private final long[] windowFirstLine;
+    // start and end of the line of each row, offsets in the window of the row
+    private final int[] lineStart;
+    private final int[] lineEnd;
+    private final int rows;
+
+    // names of the region codes, filled when the region column is decoded
+    private final RegionDictionary regionNames = new RegionDictionary();
+    // decoded columns, null until first read, published with volatile semantics so a column decoded by
+    // one thread is seen complete by the others
+    private final AtomicReferenceArray<int[]> ints = new AtomicReferenceArray<>(CrimeColumn.INT_COLUMNS);
+    private final AtomicReferenceArray<double[]> rates = new AtomicReferenceArray<>(CrimeColumn.RATE_COLUMNS);
+    private volatile int[] regions = null;
+
+    /**
+     * constructor keeps the row index built by index
+     */
+    private LazyCsvColumns(long fileSize, MappedByteBuffer[] windows, int[] windowFirstRow, long[] windowFirstLine,
+                           int[] lineStart, int[] lineEnd, int rows) {
+        this.fileSize = fileSize;
+        this.windows = windows;
+        this.windowFirstRow = windowFirstRow;
+        this.windowFirstLine = windowFirstLine;
+        this.lineStart = lineStart;
+        this.lineEnd = lineEnd;
+        this.rows = rows;
+    }
+
+    /**
+     * This method maps the file and records where every data row is without decoding any field. The
+     * header on the first line and blank lines are skipped like the other ingest modes. The file is indexed
+     * up to its last newline, a last line without one may still be being written.
+     * @param file path of the csv file
+     * @return LazyCsvColumns of the rows of the file
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws CrimeDataFormatException if a row has too few or too many fields
+     */
+    public static LazyCsvColumns index(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<MappedByteBuffer> windows = new ArrayList<>();
+            List<Integer> firstRows = new ArrayList<>();
+            List<Long> firstLines = new ArrayList<>();
+            int[] starts = new int[1024];
+            int[] ends = new int[1024];
+            int rows = 0;
+            long position = 0;
+            long lineNumber = 1;
+
+            while (position < size) {
+                long length = Math.min(MappedCsvReader.WINDOW_SIZE, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int start = position == 0 ? MappedCsvReader.skipByteOrderMark(buffer) : 0;
+                // a last line without a newline may still be being written, a CrimeTail reads it later
+                int end = MappedCsvReader.windowEnd(buffer, position, start, (int) length, lastWindow, true);
+                if (end < 0) {
+                    break;
+                }
+                windows.add(buffer);
+                firstRows.add(rows);
+                firstLines.add(lineNumber);
+
+                // find every line of the window, counting its commas on the way
+                int lineFrom = start;
+                int commas = 0;
+                for (int i = start; i <= end; i++) {
+                    byte b = i == end ? (byte) '\n' : buffer.get(i);
+                    if (b == ',') {
+                        commas++;
+                    } else if (b == '\n') {
+                        if (i == end && lineFrom == end) {
+                            break;
+                        }
+                        if (!CrimeCsvParser.isBlank(buffer, lineFrom, i) && !(position == 0 && lineFrom == start
+                                && CrimeCsvParser.isHeader(buffer, lineFrom, i))) {
+                            checkFields(buffer, lineFrom, i, commas, lineNumber);
+                            if (rows == starts.length) {
+                                starts = Arrays.copyOf(starts, rows * 2);
+                                ends = Arrays.copyOf(ends, rows * 2);
+                            }
+                            starts[rows] = lineFrom;
+                            ends[rows] = i;
+                            rows++;
+                        }
+                        lineNumber++;
+                        lineFrom = i + 1;
+                        commas = 0;
+                    }
+                }
+                position += end;
+            }
+
+            int[] firstRow = new int[windows.size() + 1];
+            long[] firstLine = new long[windows.size()];
+            for (int w = 0; w < windows.size(); w++) {
+                firstRow[w] = firstRows.get(w);
+                firstLine[w] = firstLines.get(w);
+            }
+            firstRow[windows.size()] = rows;
+            return new LazyCsvColumns(position, windows.toArray(new MappedByteBuffer[0]), firstRow, firstLine,
+                    Arrays.copyOf(starts, rows), Arrays.copyOf(ends, rows), rows);
+        }
+    } // end index
+
+    /**
+     * This method checks that a row has 20 fields, or 21 when it starts with a region name, and that the
+     * region name is ASCII, with the same messages as CrimeCsvParser
+     */
+    private static void checkFields(MappedByteBuffer buffer, int start, int end, int commas, long lineNumber) {
+        int first = start;
+        while (first < end && (buffer.get(first) == ' ' || buffer.get(first) == '\t')) {
+            first++;
+        }
+        boolean region = first < end && CrimeCsvParser.startsRegion((char) (buffer.get(first) & 0xff));
+        for (int i = first; region && i < end && buffer.get(i) != ','; i++) {
+            if (buffer.get(i) < 0) {
+                throw new CrimeDataFormatException(lineNumber, 1, "Region is not ASCII");
+            }
+        }
+        int expected = CrimeColumn.values().length + (region ? 1 : 0);
+        int found = commas + 1;
+        if (found < expected) {
+            throw new CrimeDataFormatException(lineNumber, found,
+                    "expected " + expected + " columns but found " + found);
+        }
+        if (found > expected) {
+            throw new CrimeDataFormatException(lineNumber, expected + 1,
+                    "expected " + expected + " columns but found more");
+        }
+    } // end checkFields
+
+    /**
+     * getter method to get the number of data rows
+     * @return int number of rows
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * getter method to get the number of bytes indexed, up to the last newline of the file when it was
+     * indexed, where a CrimeTail starts reading
+     * @return long number of bytes
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * getter method to get the names of the region codes, complete once regionColumn has been called
+     * @return RegionDictionary of the regions
+     */
+    RegionDictionary getRegionNames() {
+        return regionNames;
+    }
+
+    /**
+     * This method checks if a column has been decoded
+     * @param column any column
+     * @return true if the column has been read by a query
+     */
+    public boolean isDecoded(CrimeColumn column) {
+        return column.isRate() ? rates.get(column.getSlot()) != null : ints.get(column.getSlot()) != null;
+    }
+
+    /**
+     * This method returns a whole number column, decoding it the first time
+     * @param slot int slot of the column
+     * @return int[] value of every row
+     */
+    int[] intColumn(int slot) {
+        int[] values = ints.get(slot);
+        return values != null ? values : decodeInt(slot);
+    }
+
+    /**
+     * This method returns a rate column, decoding it the first time
+     * @param slot rate slot of the column
+     * @return double[] value of every row
+     */
+    double[] rateColumn(int slot) {
+        double[] values = rates.get(slot);
+        return values != null ? values : decodeRate(slot);
+    }
+
+    /**
+     * This method returns the region code of every row, decoding the region names the first time
+     * @return int[] region code of every row
+     */
+    int[] regionColumn() {
+        int[] codes = regions;
+        return codes != null ? codes : decodeRegions();
+    }
+
+    /**
+     * This method decodes a whole number column, one column is decoded at a time
+     */
+    private synchronized int[] decodeInt(int slot) {
+        int[] values = ints.get(slot);
+        if (values != null) {
+            return values;
+        }
+
+        CrimeColumn column = INT_SLOTS[slot];
+        CrimeCsvParser parser = new CrimeCsvParser();
+        values = new int[rows];
+        for (int w = 0; w < windows.length; w++) {
+            MappedByteBuffer buffer = windows[w];
+            for (int r = windowFirstRow[w]; r < windowFirstRow[w + 1]; r++) {
+                try {
+                    values[r] = parser.parseInt(buffer, lineStart[r], lineEnd[r], 0, column);
+                } catch (CrimeDataFormatException e) {
+                    throw atLine(e, lineNumber(w, lineStart[r]));
+                }
+            }
+        }
+        ints.set(slot, values);
+        return values;
+    } // end decodeInt
+
+    /**
+     * This method decodes a rate column, one column is decoded at a time
+     */
+    private synchronized double[] decodeRate(int slot) {
+        double[] values = rates.get(slot);
+        if (values != null) {
+            return values;
+        }
+
+        CrimeColumn column = RATE_SLOTS[slot];
+        CrimeCsvParser parser = new CrimeCsvParser();
+        values = new double[rows];
+        for (int w = 0; w < windows.length; w++) {
+            MappedByteBuffer buffer = windows[w];
+            for (int r = windowFirstRow[w]; r < windowFirstRow[w + 1]; r++) {
+                try {
+                    values[r] = parser.parseRate(buffer, lineStart[r], lineEnd[r], 0, column);
+                } catch (CrimeDataFormatException e) {
+                    throw atLine(e, lineNumber(w, lineStart[r]));
+                }
+            }
+        }
+        rates.set(slot, values);
+        return values;
+    } // end decodeRate
+
+    /**
+     * This method decodes the region of every row, adding the names to the dictionary before the codes
+     * are published
+     */
+    private synchronized int[] decodeRegions() {
+        int[] codes = regions;
+        if (codes != null) {
+            return codes;
+        }
+
+        CrimeCsvParser parser = new CrimeCsvParser();
+        codes = new int[rows];
+        for (int w = 0; w < windows.length; w++) {
+            MappedByteBuffer buffer = windows[w];
+            for (int r = windowFirstRow[w]; r < windowFirstRow[w + 1]; r++) {
+                codes[r] = parser.parseRegion(buffer, lineStart[r], lineEnd[r], 0, regionNames);
+            }
+        }
+        regions = codes;
+        return codes;
+    } // end decodeRegions
+
+    /**
+     * This method returns the error of a field decoded without its line number, with the line of the
+     * file it is on
+     */
+    private static CrimeDataFormatException atLine(CrimeDataFormatException e, long lineNumber) {
+        return new CrimeDataFormatException(lineNumber, e.getColumnNumber(), e.getReason());
+    }
+
+    /**
+     * This method counts the lines before an offset of a window, only used to report a bad field
+     */
+    private long lineNumber(int window, int offset) {
+        long line = windowFirstLine[window];
+        for (int i = 0; i < offset; i++) {
+            if (windows[window].get(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    } // end lineNumber
+} // end class
@@ -0,0 +1,156 @@
+package crimestats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * file:    MappedCsvReader.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: MappedCsvReader loads the crime stats csv file by memory mapping it and parsing the bytes
+ * directly, so the data is never copied through a character decoder and the operating system page
+ * cache does the buffering. Files larger than one mapping are read in windows that end on a line
+ * boundary. The file must be ASCII, which the crime stats files are.
+ */
+public class MappedCsvReader {
+    // class fields
+
+    // largest part of the file mapped at one time, a MappedByteBuffer is limited to 2 GB
+    static final long WINDOW_SIZE = 1L << 30;
+
+    /**
+     * This method reads every data row of the file into the columns, including a last line without a
+     * newline
+     * @param file path of the csv file
+     * @param columns columns to append the rows to
+     * @return long number of bytes read, the size of the file when it was opened
+     * @throws IOException if the file cannot be opened or read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    public static long read(Path file, CrimeColumns columns) throws IOException {
+        return read(file, columns, false);
+    } // end read
+
+    /**
+     * This method reads the data rows of the file into the columns. A file that may still be written
+     * is read only up to its last newline, so a row being written is not parsed before it is complete.
+     * @param file path of the csv file
+     * @param columns columns to append the rows to
+     * @param completeLines true to stop at the last newline, false to read the whole file
+     * @return long number of bytes read, where a CrimeTail continues reading
+     * @throws IOException if the file cannot be opened or read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    public static long read(Path file, CrimeColumns columns, boolean completeLines) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CrimeCsvParser parser = new CrimeCsvParser();
+            long size = channel.size();
+            long position = 0;
+            long lineNumber = 1;
+
+            while (position < size) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int start = position == 0 ? skipByteOrderMark(buffer) : 0;
+                int end = windowEnd(buffer, position, start, (int) length, lastWindow, completeLines);
+                if (end < 0) {
+                    // the last line is still being written
+                    break;
+                }
+
+                lineNumber += parseLines(buffer, start, end, lineNumber, position == 0, parser, columns);
+                position += end;
+            }
+            return position;
+        }
+    } // end read
+
+    /**
+     * This method finds where the lines to parse in a window end
+     * @param buffer bytes of the window
+     * @param position position of the window in the file, used in the error message
+     * @param start index of the first line
+     * @param length number of bytes in the window
+     * @param lastWindow true if the window ends at the end of the file
+     * @param completeLines true if a last line without a newline is left unparsed
+     * @return int index after the last line to parse, or -1 if the last window has no complete line
+     * @throws IOException if a window before the last has no newline
+     */
+    static int windowEnd(ByteBuffer buffer, long position, int start, int length, boolean lastWindow,
+                         boolean completeLines) throws IOException {
+        if (lastWindow && !completeLines) {
+            return length;
+        }
+        int end = lastLineEnd(buffer, start, length);
+        if (end < 0 && !lastWindow) {
+            throw new IOException("line starting at byte " + position + " is longer than "
+                    + WINDOW_SIZE + " bytes");
+        }
+        return end;
+    } // end windowEnd
+
+    /**
+     * This method parses every line in a range of bytes and appends the data rows to the columns. The
+     * first line of the file is skipped if it is a header, blank lines are always skipped.
+     * @param buffer bytes of the file
+     * @param start index of the first byte of the first line
+     * @param end index after the last line, a final line without a newline is included
+     * @param firstLineNumber line number of the first line in the range, used in error messages
+     * @param startOfFile true if the range starts at the beginning of the file and may hold the header
+     * @param parser parser to use
+     * @param columns columns to append the rows to
+     * @return long number of lines in the range
+     */
+    static long parseLines(ByteBuffer buffer, int start, int end, long firstLineNumber, boolean startOfFile,
+                           CrimeCsvParser parser, CrimeColumns columns) {
+        long lineNumber = firstLineNumber;
+        int lineStart = start;
+
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer.get(i) == '\n') {
+                // a range ending in a newline has no last line to parse
+                if (i == end && lineStart == end) {
+                    break;
+                }
+                if (!CrimeCsvParser.isBlank(buffer, lineStart, i)
+                        && !(startOfFile && lineStart == start && CrimeCsvParser.isHeader(buffer, lineStart, i))) {
+                    parser.parse(buffer, lineStart, i, lineNumber, columns);
+                }
+                lineNumber++;
+                lineStart = i + 1;
+            }
+        }
+        return lineNumber - firstLineNumber;
+    } // end parseLines
+
+    /**
+     * This method finds the end of the last complete line in a range of bytes
+     * @return int index after the last newline, or -1 if there is no newline
+     */
+    static int lastLineEnd(ByteBuffer buffer, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    } // end lastLineEnd
+
+    /**
+     * This method skips the UTF-8 byte order mark that some editors write at the start of a file
+     * @return int index of the first byte after the mark
+     */
+    static int skipByteOrderMark(ByteBuffer buffer) {
+        if (buffer.limit() >= 3 && (buffer.get(0) & 0xff) == 0xEF
+                && (buffer.get(1) & 0xff) == 0xBB && (buffer.get(2) & 0xff) == 0xBF) {
+            return 3;
+        }
+        return 0;
+    } // end skipByteOrderMark
+} // end class
@@ -0,0 +1,379 @@
+package crimestats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * file:    OffHeapColumns.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: OffHeapColumns keeps the columns of CrimeColumns outside the Java heap for
+ * ColumnStorage.OFF_HEAP and ColumnStorage.FILE, so the heap and the time the garbage collector spends
+ * on it stay the same however many rows are loaded. Each column is split into chunks of 2^18 rows, each
+ * chunk a little endian ByteBuffer of 4 bytes per row for whole numbers and region codes and 8 bytes
+ * per row for rates. The chunks are either direct buffers, whose size is limited by the
+ * -XX:MaxDirectMemorySize option of the JVM, or slices of a CrimeSnapshot mapped into memory, which
+ * the operating system pages in from the file as they are read.
+ *
+ * Like the arrays of CrimeColumns, chunks are not changed once their rows are published. Appending rows
+ * shares every full chunk with the columns before and writes the new rows past their last row in the
+ * last chunk, or into a copy of it when it is full, mapped from a file, or already written past.
+ */
+public class OffHeapColumns {
+    // class fields
+
+    static final int CHUNK_SHIFT = 18;
+    static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    // fewest rows of the last chunk, it grows by doubling until it is full
+    private static final int MIN_CHUNK_ROWS = 1024;
+    // chunks mapped from a file at a time, 256 chunks are 512 MB of rates
+    private static final int WINDOW_CHUNKS = 256;
+
+    // chunks of each column, indexed by slot and then by row >>> CHUNK_SHIFT
+    private final ByteBuffer[][] ints;
+    private final ByteBuffer[][] rates;
+    private final ByteBuffer[] regions;
+    private final int size;
+    // set when withRows wrote rows past the end of these columns into the last chunk they share
+    private final AtomicBoolean extended = new AtomicBoolean();
+
+    /**
+     * constructor keeps the chunks of every column
+     */
+    private OffHeapColumns(ByteBuffer[][] ints, ByteBuffer[][] rates, ByteBuffer[] regions, int size) {
+        this.ints = ints;
+        this.rates = rates;
+        this.regions = regions;
+        this.size = size;
+    }
+
+    /**
+     * This method copies columns into direct buffers a chunk at a time, so only one chunk of each
+     * column is on the heap at once besides the columns copied
+     * @param columns columns to copy
+     * @return OffHeapColumns holding the same rows
+     */
+    static OffHeapColumns copyOf(CrimeColumns columns) {
+        int rows = columns.size();
+        ByteBuffer[][] intChunks = new ByteBuffer[CrimeColumn.INT_COLUMNS][];
+        ByteBuffer[][] rateChunks = new ByteBuffer[CrimeColumn.RATE_COLUMNS][];
+        int[] intBlock = new int[Math.min(rows, CHUNK_ROWS)];
+        double[] rateBlock = new double[Math.min(rows, CHUNK_ROWS)];
+
+        for (CrimeColumn column : CrimeColumn.values()) {
+            ByteBuffer[] chunks = allocate(rows, column.isRate() ? Double.BYTES : Integer.BYTES);
+            for (int k = 0; k < chunks.length; k++) {
+                int from = k << CHUNK_SHIFT;
+                int count = Math.min(CHUNK_ROWS, rows - from);
+                if (column.isRate()) {
+                    columns.readRates(column, from, count, rateBlock);
+                    view(chunks[k], 0).asDoubleBuffer().put(rateBlock, 0, count);
+                } else {
+                    columns.readInts(column, from, count, intBlock);
+                    view(chunks[k], 0).asIntBuffer().put(intBlock, 0, count);
+                }
+            }
+            if (column.isRate()) {
+                rateChunks[column.getSlot()] = chunks;
+            } else {
+                intChunks[column.getSlot()] = chunks;
+            }
+        }
+
+        ByteBuffer[] regionChunks = allocate(rows, Integer.BYTES);
+        for (int k = 0; k < regionChunks.length; k++) {
+            int from = k << CHUNK_SHIFT;
+            int count = Math.min(CHUNK_ROWS, rows - from);
+            columns.readRegions(from, count, intBlock);
+            view(regionChunks[k], 0).asIntBuffer().put(intBlock, 0, count);
+        }
+        return new OffHeapColumns(intChunks, rateChunks, regionChunks, rows);
+    } // end copyOf
+
+    /**
+     * This method maps the column blocks of a CrimeSnapshot, which hold every column in CrimeColumn order
+     * followed by the region codes, and adds their bytes to the checksum in file order
+     * @param channel open snapshot file, the mapping stays valid after it is closed
+     * @param position offset of the first column block
+     * @param rows number of rows
+     * @param crc checksum of the column blocks
+     * @return OffHeapColumns reading the rows from the file
+     * @throws IOException if the file cannot be mapped
+     */
+    static OffHeapColumns map(FileChannel channel, long position, int rows, CRC32 crc) throws IOException {
+        ByteBuffer[][] intChunks = new ByteBuffer[CrimeColumn.INT_COLUMNS][];
+        ByteBuffer[][] rateChunks = new ByteBuffer[CrimeColumn.RATE_COLUMNS][];
+        for (CrimeColumn column : CrimeColumn.values()) {
+            int width = column.isRate() ? Double.BYTES : Integer.BYTES;
+            ByteBuffer[] chunks = mapBlock(channel, position, rows, width, crc);
+            if (column.isRate()) {
+                rateChunks[column.getSlot()] = chunks;
+            } else {
+                intChunks[column.getSlot()] = chunks;
+            }
+            position += (long) rows * width;
+        }
+        ByteBuffer[] regionChunks = mapBlock(channel, position, rows, Integer.BYTES, crc);
+        return new OffHeapColumns(intChunks, rateChunks, regionChunks, rows);
+    } // end map
+
+    /**
+     * This method maps one column block in windows of up to 256 chunks and slices them into chunks
+     */
+    private static ByteBuffer[] mapBlock(FileChannel channel, long position, int rows, int width, CRC32 crc)
+            throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(rows)];
+        for (int first = 0; first < chunks.length; first += WINDOW_CHUNKS) {
+            int firstRow = first << CHUNK_SHIFT;
+            int windowRows = (int) Math.min((long) WINDOW_CHUNKS << CHUNK_SHIFT, rows - firstRow);
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                    position + (long) firstRow * width, (long) windowRows * width);
+            crc.update(window);
+            for (int k = first; k < chunks.length && k < first + WINDOW_CHUNKS; k++) {
+                int offset = (k - first) << CHUNK_SHIFT;
+                int count = Math.min(CHUNK_ROWS, windowRows - offset);
+                chunks[k] = window.slice(offset * width, count * width).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return chunks;
+    } // end mapBlock
+
+    /**
+     * This method allocates the direct chunks of a column of rows, the last chunk with room to spare
+     */
+    private static ByteBuffer[] allocate(int rows, int width) {
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(rows)];
+        for (int k = 0; k < chunks.length; k++) {
+            chunks[k] = chunk(rows - (k << CHUNK_SHIFT), width);
+        }
+        return chunks;
+    } // end allocate
+
+    /**
+     * This method allocates a direct chunk with room for at least the given rows, a power of two up to
+     * a full chunk
+     */
+    private static ByteBuffer chunk(int rows, int width) {
+        int capacity = rows >= CHUNK_ROWS ? CHUNK_ROWS
+                : Math.max(MIN_CHUNK_ROWS, Integer.highestOneBit(Math.max(rows - 1, 1)) << 1);
+        return ByteBuffer.allocateDirect(capacity * width).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * This method returns the number of chunks holding a number of rows
+     */
+    private static int chunkCount(int rows) {
+        return (int) (((long) rows + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * This method returns a little endian view of a chunk starting at a row, so bulk gets and puts do
+     * not move the position of the chunk other threads read
+     */
+    private static ByteBuffer view(ByteBuffer chunk, int byteOffset) {
+        ByteBuffer view = chunk.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.position(byteOffset);
+        return view;
+    }
+
+    /**
+     * getter method to get the number of rows
+     * @return int number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method returns the bytes taken by the rows outside the heap, not counting spare room in the
+     * last chunk
+     * @return long bytes
+     */
+    public long getBytes() {
+        return (long) size * ((CrimeColumn.INT_COLUMNS + 1) * Integer.BYTES + CrimeColumn.RATE_COLUMNS * Double.BYTES);
+    }
+
+    /**
+     * This method returns the value of a whole number column for one row
+     * @param slot int slot of the column
+     * @param row row index starting at 0
+     * @return int value
+     */
+    int getInt(int slot, int row) {
+        return ints[slot][row >>> CHUNK_SHIFT].getInt((row & CHUNK_MASK) << 2);
+    }
+
+    /**
+     * This method returns the value of a rate column for one row
+     * @param slot rate slot of the column
+     * @param row row index starting at 0
+     * @return double value
+     */
+    double getRate(int slot, int row) {
+        return rates[slot][row >>> CHUNK_SHIFT].getDouble((row & CHUNK_MASK) << 3);
+    }
+
+    /**
+     * This method returns the region code of one row
+     * @param row row index starting at 0
+     * @return int code in the region dictionary
+     */
+    int getRegion(int row) {
+        return regions[row >>> CHUNK_SHIFT].getInt((row & CHUNK_MASK) << 2);
+    }
+
+    /**
+     * This method copies rows of a whole number column to an array
+     * @param slot int slot of the column
+     * @param from first row
+     * @param count number of rows
+     * @param into array that receives the rows from index 0
+     */
+    void readInts(int slot, int from, int count, int[] into) {
+        readInts(ints[slot], from, count, into);
+    }
+
+    /**
+     * This method copies the region codes of rows to an array
+     * @param from first row
+     * @param count number of rows
+     * @param into array that receives the codes from index 0
+     */
+    void readRegions(int from, int count, int[] into) {
+        readInts(regions, from, count, into);
+    }
+
+    /**
+     * This method copies rows of a column of 4 byte values a chunk at a time
+     */
+    private static void readInts(ByteBuffer[] chunks, int from, int count, int[] into) {
+        int done = 0;
+        while (done < count) {
+            int row = from + done;
+            int n = Math.min(count - done, CHUNK_ROWS - (row & CHUNK_MASK));
+            view(chunks[row >>> CHUNK_SHIFT], (row & CHUNK_MASK) << 2).asIntBuffer().get(into, done, n);
+            done += n;
+        }
+    } // end readInts
+
+    /**
+     * This method copies rows of a rate column to an array
+     * @param slot rate slot of the column
+     * @param from first row
+     * @param count number of rows
+     * @param into array that receives the rows from index 0
+     */
+    void readRates(int slot, int from, int count, double[] into) {
+        ByteBuffer[] chunks = rates[slot];
+        int done = 0;
+        while (done < count) {
+            int row = from + done;
+            int n = Math.min(count - done, CHUNK_ROWS - (row & CHUNK_MASK));
+            view(chunks[row >>> CHUNK_SHIFT], (row & CHUNK_MASK) << 3).asDoubleBuffer().get(into, done, n);
+            done += n;
+        }
+    } // end readRates
+
+    /**
+     * This method finds the row with the highest or lowest value of a rate column from one row to
+     * another, reading the chunks in place
+     * @param slot rate slot of the column
+     * @param from first row, inclusive
+     * @param to last row, exclusive
+     * @param highest true for the highest value, false for the lowest
+     * @return int row index, the first row wins a tie, or -1 if no row is higher than negative infinity
+     * or lower than infinity
+     */
+    int extremeRow(int slot, int from, int to, boolean highest) {
+        ByteBuffer[] chunks = rates[slot];
+        int best = -1;
+        double bestValue = highest ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        int row = from;
+        while (row < to) {
+            ByteBuffer chunk = chunks[row >>> CHUNK_SHIFT];
+            int end = (int) Math.min(to, ((long) (row >>> CHUNK_SHIFT) + 1) << CHUNK_SHIFT);
+            for (; row < end; row++) {
+                double value = chunk.getDouble((row & CHUNK_MASK) << 3);
+                if (highest ? value > bestValue : value < bestValue) {
+                    bestValue = value;
+                    best = row;
+                }
+            }
+        }
+        return best;
+    } // end extremeRow
+
+    /**
+     * This method returns new columns holding these rows followed by the rows of another set of columns,
+     * without changing the rows of these columns
+     * @param other columns to copy the rows from
+     * @param codes region code in the new columns of each region code of other
+     * @return OffHeapColumns with the rows of both
+     */
+    OffHeapColumns withRows(CrimeColumns other, int[] codes) {
+        int rows = size + other.size();
+        // only the first columns appended to these may write past their last row
+        boolean share = extended.compareAndSet(false, true);
+
+        ByteBuffer[][] intChunks = new ByteBuffer[CrimeColumn.INT_COLUMNS][];
+        ByteBuffer[][] rateChunks = new ByteBuffer[CrimeColumn.RATE_COLUMNS][];
+        for (CrimeColumn column : CrimeColumn.values()) {
+            int slot = column.getSlot();
+            if (column.isRate()) {
+                rateChunks[slot] = withRoom(rates[slot], Double.BYTES, rows, share);
+                double[] values = other.rateArray(column);
+                for (int i = 0; i < other.size(); i++) {
+                    int row = size + i;
+                    rateChunks[slot][row >>> CHUNK_SHIFT].putDouble((row & CHUNK_MASK) << 3, values[i]);
+                }
+            } else {
+                intChunks[slot] = withRoom(ints[slot], Integer.BYTES, rows, share);
+                putInts(intChunks[slot], other.intArray(column), null, other.size());
+            }
+        }
+        ByteBuffer[] regionChunks = withRoom(regions, Integer.BYTES, rows, share);
+        putInts(regionChunks, other.regionArray(), codes, other.size());
+        return new OffHeapColumns(intChunks, rateChunks, regionChunks, rows);
+    } // end withRows
+
+    /**
+     * This method writes values after the last row of these columns, translated through codes if given
+     */
+    private void putInts(ByteBuffer[] chunks, int[] values, int[] codes, int count) {
+        for (int i = 0; i < count; i++) {
+            int row = size + i;
+            chunks[row >>> CHUNK_SHIFT].putInt((row & CHUNK_MASK) << 2, codes != null ? codes[values[i]] : values[i]);
+        }
+    } // end putInts
+
+    /**
+     * This method returns the chunks of a column with room for the given rows. Full chunks are shared,
+     * the chunk holding the last row is shared only when it is a direct buffer with room, and may be
+     * written past its last row, otherwise it is copied into a larger direct chunk.
+     */
+    private ByteBuffer[] withRoom(ByteBuffer[] chunks, int width, int rows, boolean share) {
+        ByteBuffer[] result = Arrays.copyOf(chunks, chunkCount(rows));
+        int last = size >>> CHUNK_SHIFT;
+        int filled = size & CHUNK_MASK;
+        if (filled > 0) {
+            int needed = Math.min(CHUNK_ROWS, rows - (last << CHUNK_SHIFT));
+            ByteBuffer chunk = chunks[last];
+            if (!share || chunk.isReadOnly() || !chunk.isDirect() || chunk.capacity() < needed * width) {
+                ByteBuffer copy = chunk(needed, width);
+                copy.put(0, view(chunk, 0).limit(filled * width), 0, filled * width);
+                result[last] = copy;
+            }
+            last++;
+        }
+        for (int k = last; k < result.length; k++) {
+            result[k] = chunk(rows - (k << CHUNK_SHIFT), width);
+        }
+        return result;
+    } // end withRoom
+} // end class
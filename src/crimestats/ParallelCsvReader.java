@@ -0,0 +1,182 @@
+package crimestats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * file:    ParallelCsvReader.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: ParallelCsvReader loads the crime stats csv file on several threads. The file is memory
+ * mapped and split into byte ranges that end on a newline, each range is parsed into its own columns
+ * on a ForkJoinPool, and the ranges are then appended in file order. The crime stats files are sorted
+ * by year, so the merged rows are in year order and match the other ingest modes.
+ */
+public class ParallelCsvReader {
+    // class fields
+
+    // ranges smaller than this are not worth a separate task
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    // rough size of one csv row, used to size the columns of each range before parsing
+    private static final int ESTIMATED_ROW_BYTES = 96;
+
+    /**
+     * This class holds what one task parsed from its range of the file
+     */
+    private static class Chunk {
+        final CrimeColumns columns;
+        final long lines;
+
+        Chunk(CrimeColumns columns, long lines) {
+            this.columns = columns;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * This method reads every data row of the file into the columns using the threads of the pool,
+     * including a last line without a newline
+     * @param file path of the csv file
+     * @param columns columns to append the rows to
+     * @param pool pool that parses the ranges
+     * @return long number of bytes read, the size of the file when it was opened
+     * @throws IOException if the file cannot be opened or read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    public static long read(Path file, CrimeColumns columns, ForkJoinPool pool) throws IOException {
+        return read(file, columns, pool, false);
+    } // end read
+
+    /**
+     * This method reads the data rows of the file into the columns using the threads of the pool. A
+     * file that may still be written is read only up to its last newline, like MappedCsvReader.
+     * @param file path of the csv file
+     * @param columns columns to append the rows to
+     * @param pool pool that parses the ranges
+     * @param completeLines true to stop at the last newline, false to read the whole file
+     * @return long number of bytes read, where a CrimeTail continues reading
+     * @throws IOException if the file cannot be opened or read
+     * @throws CrimeDataFormatException if a row cannot be parsed
+     */
+    public static long read(Path file, CrimeColumns columns, ForkJoinPool pool, boolean completeLines)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            long lineNumber = 1;
+
+            // map one window at a time and parse the ranges of each window in parallel
+            while (position < size) {
+                long length = Math.min(MappedCsvReader.WINDOW_SIZE, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int start = position == 0 ? MappedCsvReader.skipByteOrderMark(buffer) : 0;
+                int end = MappedCsvReader.windowEnd(buffer, position, start, (int) length, lastWindow, completeLines);
+                if (end < 0) {
+                    // the last line is still being written
+                    break;
+                }
+
+                List<Future<Chunk>> chunks = pool.invokeAll(
+                        splitWindow(buffer, start, end, position == 0, pool.getParallelism()));
+                lineNumber = mergeChunks(chunks, lineNumber, columns);
+                position += end;
+            }
+            return position;
+        }
+    } // end read
+
+    /**
+     * This method splits a window into ranges that end on a newline, a few per thread so a slow range
+     * does not hold up the others
+     * @return list of tasks, one per range, in file order
+     */
+    private static List<Callable<Chunk>> splitWindow(MappedByteBuffer buffer, int start, int end,
+                                                     boolean startOfFile, int parallelism) {
+        List<Callable<Chunk>> tasks = new ArrayList<>();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (end - start) / (parallelism * 4));
+
+        int chunkStart = start;
+        while (chunkStart < end) {
+            int chunkEnd = nextLineEnd(buffer, (int) Math.min((long) chunkStart + chunkSize, end), end);
+            // the parser only uses absolute gets, so the tasks can share the buffer
+            tasks.add(parseTask(buffer, chunkStart, chunkEnd, startOfFile && chunkStart == start));
+            chunkStart = chunkEnd;
+        }
+        return tasks;
+    } // end splitWindow
+
+    /**
+     * This method creates the task that parses one range into new columns. Line numbers are counted from
+     * 1 within the range and corrected by mergeChunks if a row cannot be parsed.
+     */
+    private static Callable<Chunk> parseTask(ByteBuffer buffer, int start, int end, boolean startOfFile) {
+        return () -> {
+            CrimeColumns chunk = new CrimeColumns((end - start) / ESTIMATED_ROW_BYTES);
+            long lines = MappedCsvReader.parseLines(buffer, start, end, 1, startOfFile,
+                    new CrimeCsvParser(), chunk);
+            return new Chunk(chunk, lines);
+        };
+    } // end parseTask
+
+    /**
+     * This method appends the parsed ranges to the columns in file order
+     * @return long line number of the first line after the window
+     */
+    private static long mergeChunks(List<Future<Chunk>> chunks, long lineNumber, CrimeColumns columns)
+            throws IOException {
+        List<Chunk> parsed = new ArrayList<>(chunks.size());
+        int rows = columns.size();
+
+        for (Future<Chunk> future : chunks) {
+            try {
+                Chunk chunk = future.get();
+                parsed.add(chunk);
+                rows += chunk.columns.size();
+                lineNumber += chunk.lines;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof CrimeDataFormatException) {
+                    // move the line number from the start of the range to the start of the file
+                    CrimeDataFormatException format = (CrimeDataFormatException) e.getCause();
+                    throw new CrimeDataFormatException(lineNumber + format.getLineNumber() - 1,
+                            format.getColumnNumber(), format.getReason());
+                }
+                throw new IOException("error parsing file: " + e.getCause(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while parsing file", e);
+            }
+        }
+
+        columns.ensureCapacity(rows);
+        for (Chunk chunk : parsed) {
+            columns.appendAll(chunk.columns);
+        }
+        return lineNumber;
+    } // end mergeChunks
+
+    /**
+     * This method finds the end of the line that contains an index
+     * @return int index after the next newline at or after from, or end if there is none
+     */
+    private static int nextLineEnd(MappedByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    } // end nextLineEnd
+} // end class
@@ -0,0 +1,197 @@
+package crimestats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * file:    Parallelism.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: Parallelism decides whether a query scans the rows on one thread or splits them across a
+ * ForkJoinPool. Scans of fewer rows than the threshold stay on the calling thread, where splitting
+ * would cost more than it saves. Larger scans are split into ranges of rows that are scanned on the
+ * pool and combined in row order, so ties are broken the same way as a sequential scan. On the command
+ * line --parallelism=n runs queries and parallel ingest on a pool of n threads instead of the common
+ * pool, 1 keeps every query sequential, and --parallel-threshold=rows sets the threshold.
+ */
+public class Parallelism {
+    // class fields
+
+    // fewest rows scanned in parallel, a sequential scan of fewer rows takes well under a millisecond
+    public static final int DEFAULT_THRESHOLD = 100000;
+
+    // runs every scan on the calling thread
+    public static final Parallelism SEQUENTIAL = new Parallelism(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * constructor for queries on a pool
+     * @param pool pool to run parallel scans on
+     * @param threshold fewest rows scanned in parallel
+     */
+    public Parallelism(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = Math.max(threshold, 1);
+    }
+
+    /**
+     * This method returns the parallelism used when no options are given, the common pool and the
+     * default threshold
+     * @return Parallelism on the common pool
+     */
+    public static Parallelism defaults() {
+        return new Parallelism(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * This method reads the --parallelism=n and --parallel-threshold=rows options
+     * @param args command line arguments
+     * @return Parallelism named by the options, the defaults for options that are not given
+     * @throws IllegalArgumentException if an option is not a positive number
+     */
+    public static Parallelism fromArgs(String[] args) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int threshold = DEFAULT_THRESHOLD;
+
+        for (String arg : args) {
+            if (arg.startsWith("--parallelism=")) {
+                pool = new ForkJoinPool(positive(arg, "--parallelism="));
+            } else if (arg.startsWith("--parallel-threshold=")) {
+                threshold = positive(arg, "--parallel-threshold=");
+            }
+        }
+        return new Parallelism(pool, threshold);
+    } // end fromArgs
+
+    /**
+     * This method parses the positive number after an option name
+     */
+    private static int positive(String arg, String option) {
+        try {
+            int value = Integer.parseInt(arg.substring(option.length()));
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " needs a positive number: " + arg);
+    }
+
+    /**
+     * getter method to get the pool parallel scans and parallel ingest run on
+     * @return ForkJoinPool pool
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * getter method to get the fewest rows scanned in parallel
+     * @return int threshold
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * This method checks if a scan of a number of rows is split across the pool
+     * @param rows number of rows scanned
+     * @return true if the scan runs in parallel
+     */
+    public boolean isParallel(int rows) {
+        return rows >= threshold && pool.getParallelism() > 1;
+    }
+
+    /**
+     * This method scans a range of rows and combines the results of its parts in row order. The range
+     * is scanned in one piece when it is smaller than the threshold and split into about four parts per
+     * thread of the pool otherwise.
+     * @param from first row, inclusive
+     * @param to last row, exclusive
+     * @param scan scans one part of the range
+     * @param combine combines the results of two neighbouring parts, the earlier part first
+     * @return T result for the whole range
+     */
+    public <T> T reduce(int from, int to, RangeScan<T> scan, BinaryOperator<T> combine) {
+        if (!isParallel(to - from)) {
+            return scan.scan(from, to);
+        }
+        int part = Math.max((to - from) / (pool.getParallelism() * 4), 1);
+        return pool.invoke(new RangeTask<>(from, to, part, scan, combine));
+    } // end reduce
+
+    /**
+     * This method runs independent tasks, such as one pass per column, on the pool when the scan is
+     * large enough and one after another on the calling thread otherwise
+     * @param rows number of rows each task scans
+     * @param tasks tasks to run
+     */
+    public void runAll(int rows, Runnable... tasks) {
+        if (!isParallel(rows)) {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        List<ForkJoinTask<?>> forked = new ArrayList<>();
+        for (Runnable task : tasks) {
+            forked.add(ForkJoinTask.adapt(task));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forked)));
+    } // end runAll
+
+    /**
+     * RangeScan computes a result from a range of rows
+     */
+    @FunctionalInterface
+    public interface RangeScan<T> {
+        /**
+         * This method scans a range of rows
+         * @param from first row, inclusive
+         * @param to last row, exclusive
+         * @return T result of the range
+         */
+        T scan(int from, int to);
+    }
+
+    /**
+     * RangeTask splits a range of rows in half until the parts are small enough to scan, then
+     * combines the halves left to right
+     */
+    private static final class RangeTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int part;
+        private final RangeScan<T> scan;
+        private final BinaryOperator<T> combine;
+
+        private RangeTask(int from, int to, int part, RangeScan<T> scan, BinaryOperator<T> combine) {
+            this.from = from;
+            this.to = to;
+            this.part = part;
+            this.scan = scan;
+            this.combine = combine;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= part) {
+                return scan.scan(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask<T> right = new RangeTask<>(middle, to, part, scan, combine);
+            right.fork();
+            T left = new RangeTask<>(from, middle, part, scan, combine).compute();
+            return combine.apply(left, right.join());
+        }
+    } // end RangeTask
+} // end class
@@ -0,0 +1,157 @@
+package crimestats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * file:    QueryCache.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: QueryCache keeps the results of recent queries so a dashboard asking the same questions again
+ * is answered without scanning the data. Results are keyed by what the query asks, its kind, crime,
+ * column, range of years and argument, so "B" and "max:murder" share one entry. The cache holds at most
+ * a fixed number of results and drops the least recently used one when full. Every result belongs to
+ * one version of one set of columns, and the whole cache is cleared the first time it is used after
+ * rows are appended or the data is replaced. It is safe to use from several threads.
+ */
+public class QueryCache {
+    // class fields
+
+    // number of results kept when no size is given
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    // results in order of use, least recently used first
+    private final LinkedHashMap<String, QueryResult> results;
+
+    // the data the results were computed from
+    private CrimeColumns columns = null;
+    private long version = -1;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /**
+     * constructor creates an empty cache
+     * @param capacity most results kept, 0 keeps none
+     */
+    public QueryCache(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.results = new LinkedHashMap<String, QueryResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryResult> eldest) {
+                if (size() > QueryCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * This method returns the cached result of a query, or runs the query and caches its result
+     * @param query parsed query
+     * @param crime data to answer it from
+     * @return QueryResult for the query text
+     */
+    public QueryResult get(CrimeQuery query, CrimeStats crime) {
+        if (capacity == 0) {
+            return query.run(crime);
+        }
+
+        CrimeColumns data = crime.getColumns();
+        long current = data.getVersion();
+        QueryResult result;
+        synchronized (this) {
+            validate(data, current);
+            result = results.get(query.getCacheKey());
+            if (result != null) {
+                hits++;
+                return result.getQuery().equals(query.getText()) ? result : result.withQuery(query.getText());
+            }
+            misses++;
+        }
+
+        // run outside the lock so a slow query does not hold up cached answers
+        result = query.run(crime);
+        synchronized (this) {
+            // only keep the result if the data did not change while it ran
+            if (data == columns && current == version && data.getVersion() == current) {
+                results.put(query.getCacheKey(), result);
+            }
+        }
+        return result;
+    } // end get
+
+    /**
+     * This method clears the cache if the data is not the data the results were computed from
+     */
+    private void validate(CrimeColumns data, long current) {
+        if (data != columns || current != version) {
+            if (!results.isEmpty()) {
+                invalidations++;
+                results.clear();
+            }
+            columns = data;
+            version = current;
+        }
+    }
+
+    /**
+     * This method removes every result
+     */
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    /**
+     * getter method to get the most results kept
+     * @return int capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * getter method to get the number of results kept
+     * @return int number of results
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * getter method to get the number of queries answered from the cache
+     * @return long hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * getter method to get the number of queries that had to be run
+     * @return long misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * getter method to get the number of results dropped because the cache was full
+     * @return long evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * getter method to get the number of times the cache was cleared because the data changed
+     * @return long invalidations
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+} // end class
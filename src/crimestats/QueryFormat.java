@@ -0,0 +1,184 @@
+package crimestats;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * file:    QueryFormat.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: QueryFormat writes QueryResults for other programs to read. CSV writes one line per value
+ * with the columns query,row,field,value so results of different shapes share one table, and a failed
+ * query writes a single line with the field error. JSON writes an array with one object per query,
+ * holding either a rows array of objects or an error. Numbers are written in full precision.
+ */
+public enum QueryFormat {
+    CSV,
+    JSON;
+
+    /**
+     * This method finds the format for a name such as csv, ignoring case
+     * @param name name of the format
+     * @return QueryFormat for the name
+     * @throws IllegalArgumentException if the name is not a format
+     */
+    public static QueryFormat fromName(String name) {
+        for (QueryFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("unknown format: " + name);
+    }
+
+    /**
+     * This method writes the results in this format
+     * @param results results to write, in order
+     * @param out writer for the output
+     * @throws IOException if the output fails
+     */
+    public void write(List<QueryResult> results, AsciiWriter out) throws IOException {
+        if (this == CSV) {
+            out.write("query,row,field,value\n");
+            for (QueryResult result : results) {
+                writeCsv(result, out);
+            }
+        } else {
+            out.write('[');
+            for (int i = 0; i < results.size(); i++) {
+                out.write(i == 0 ? "\n" : ",\n");
+                writeJson(results.get(i), out);
+            }
+            out.write("\n]\n");
+        }
+    } // end write
+
+    /**
+     * This method writes the lines of one result as csv
+     */
+    private static void writeCsv(QueryResult result, AsciiWriter out) throws IOException {
+        if (result.isError()) {
+            writeCsvText(result.getQuery(), out);
+            out.write(",,error,");
+            writeCsvText(result.getError(), out);
+            out.write('\n');
+            return;
+        }
+
+        for (int row = 0; row < result.getRowCount(); row++) {
+            for (int field = 0; field < result.getFieldCount(); field++) {
+                writeCsvText(result.getQuery(), out);
+                out.write(',').writeLong(row).write(',');
+                writeCsvText(result.getField(field), out);
+                out.write(',');
+                Object value = result.getValue(row, field);
+                if (value instanceof String) {
+                    writeCsvText((String) value, out);
+                } else {
+                    writeNumber(value, out);
+                }
+                out.write('\n');
+            }
+        }
+    } // end writeCsv
+
+    /**
+     * This method writes one result as a json object
+     * @param result result to write
+     * @param out writer for the output
+     * @throws IOException if the output fails
+     */
+    static void writeJson(QueryResult result, AsciiWriter out) throws IOException {
+        out.write("{\"query\":");
+        writeJsonText(result.getQuery(), out);
+
+        if (result.isError()) {
+            out.write(",\"error\":");
+            writeJsonText(result.getError(), out);
+            out.write('}');
+            return;
+        }
+
+        out.write(",\"rows\":[");
+        for (int row = 0; row < result.getRowCount(); row++) {
+            out.write(row == 0 ? "{" : ",{");
+            for (int field = 0; field < result.getFieldCount(); field++) {
+                if (field > 0) {
+                    out.write(',');
+                }
+                writeJsonText(result.getField(field), out);
+                out.write(':');
+                Object value = result.getValue(row, field);
+                if (value instanceof String) {
+                    writeJsonText((String) value, out);
+                } else if (value instanceof Double && !Double.isFinite((Double) value)) {
+                    // json has no NaN or infinity
+                    out.write("null");
+                } else {
+                    writeNumber(value, out);
+                }
+            }
+            out.write('}');
+        }
+        out.write("]}");
+    } // end writeJson
+
+    /**
+     * This method writes an Integer, Long or Double value
+     */
+    private static void writeNumber(Object value, AsciiWriter out) throws IOException {
+        if (value instanceof Double) {
+            out.write(Double.toString((Double) value));
+        } else {
+            out.writeLong(((Number) value).longValue());
+        }
+    }
+
+    /**
+     * This method writes text as a csv field, quoted if it holds a comma, quote or line break
+     */
+    private static void writeCsvText(String text, AsciiWriter out) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (quote) {
+            out.write('"');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            // the output is ASCII, other characters are replaced
+            out.write(c < 0x80 ? c : '?');
+        }
+        if (quote) {
+            out.write('"');
+        }
+    } // end writeCsvText
+
+    /**
+     * This method writes text as a json string, escaping quotes, backslashes, control characters and
+     * characters outside ASCII
+     */
+    static void writeJsonText(String text, AsciiWriter out) throws IOException {
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\').write(c);
+            } else if (c < 0x20 || c >= 0x7f) {
+                out.write("\\u");
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    out.write(Character.forDigit((c >> shift) & 0xf, 16));
+                }
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    } // end writeJsonText
+} // end enum
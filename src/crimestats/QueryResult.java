@@ -0,0 +1,140 @@
+package crimestats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * file:    QueryResult.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: QueryResult holds the answer to one CrimeQuery as a small table, a list of field names and
+ * one array of values per row, or the error message if the query could not be answered. Values are
+ * Integer, Long, Double or String so QueryFormat can write them as csv or json.
+ */
+public class QueryResult {
+    // class fields
+
+    private final String query;
+    private final String[] fields;
+    private final List<Object[]> rows;
+    private final String error;
+
+    /**
+     * constructor creates an empty result with the given fields
+     * @param query text of the query
+     * @param fields names of the values in each row
+     */
+    QueryResult(String query, String... fields) {
+        this.query = query;
+        this.fields = fields;
+        this.rows = new ArrayList<>();
+        this.error = null;
+    }
+
+    /**
+     * constructor creates a failed result
+     */
+    private QueryResult(String query, String error) {
+        this.query = query;
+        this.fields = new String[0];
+        this.rows = new ArrayList<>();
+        this.error = error;
+    }
+
+    /**
+     * constructor shares the answer of another result under different query text
+     */
+    private QueryResult(String query, QueryResult answer) {
+        this.query = query;
+        this.fields = answer.fields;
+        this.rows = answer.rows;
+        this.error = answer.error;
+    }
+
+    /**
+     * This method creates the result of a query that could not be answered
+     * @param query text of the query
+     * @param error reason the query failed
+     * @return QueryResult with no rows
+     */
+    static QueryResult failed(String query, String error) {
+        return new QueryResult(query, error);
+    }
+
+    /**
+     * This method returns the same answer for another way of writing the query, such as a cached
+     * result of max:murder returned for B. The rows are shared, not copied.
+     * @param query text of the query
+     * @return QueryResult with the query text replaced
+     */
+    QueryResult withQuery(String query) {
+        return new QueryResult(query, this);
+    }
+
+    /**
+     * This method adds a row, with one value for each field in order
+     * @param values values of the row
+     */
+    void addRow(Object... values) {
+        rows.add(values);
+    }
+
+    /**
+     * getter method to get the text of the query
+     * @return String query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * getter method to get the number of fields in each row
+     * @return int number of fields
+     */
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    /**
+     * getter method to get the name of a field
+     * @param field index of the field
+     * @return String field name
+     */
+    public String getField(int field) {
+        return fields[field];
+    }
+
+    /**
+     * getter method to get the number of rows
+     * @return int number of rows
+     */
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * getter method to get one value
+     * @param row index of the row
+     * @param field index of the field
+     * @return Object value, an Integer, Long, Double or String
+     */
+    public Object getValue(int row, int field) {
+        return rows.get(row)[field];
+    }
+
+    /**
+     * getter method to get the reason the query failed
+     * @return String error message, or null if the query succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * This method tells whether the query failed
+     * @return true if there is an error message
+     */
+    public boolean isError() {
+        return error != null;
+    }
+} // end class
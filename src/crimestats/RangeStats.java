@@ -0,0 +1,149 @@
+package crimestats;
+
+/**
+ * file:    RangeStats.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: RangeStats holds the statistics of every crime over a range of years: the lowest, highest
+ * and mean rate, the rows where the lowest and highest rate were found and the total number of crimes.
+ * It is built by YearIndex from its prefix sums and sparse tables.
+ */
+public class RangeStats {
+    // class fields, indexed by the ordinal of the CrimeMetric
+
+    private static final int METRICS = CrimeMetric.values().length;
+
+    private final int fromYear;
+    private final int toYear;
+    private int rows = 0;
+    private final double[] min = new double[METRICS];
+    private final double[] max = new double[METRICS];
+    private final int[] minRow = new int[METRICS];
+    private final int[] maxRow = new int[METRICS];
+    private final double[] rateSum = new double[METRICS];
+    private final long[] countSum = new long[METRICS];
+
+    /**
+     * constructor creates the statistics of an empty range
+     * @param fromYear first year of the range
+     * @param toYear last year of the range
+     */
+    RangeStats(int fromYear, int toYear) {
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        for (int m = 0; m < METRICS; m++) {
+            min[m] = Double.POSITIVE_INFINITY;
+            max[m] = Double.NEGATIVE_INFINITY;
+            minRow[m] = -1;
+            maxRow[m] = -1;
+        }
+    }
+
+    /**
+     * This method adds the rows counted in a summary to the range
+     * @param count number of rows
+     */
+    void addRows(int count) {
+        rows += count;
+    }
+
+    /**
+     * This method combines the summary of one crime over some rows into the range, the summary added
+     * first wins a tie
+     * @param metric crime
+     * @param low lowest rate and lowRow its row
+     * @param high highest rate and highRow its row
+     * @param rates sum of the rates
+     * @param counts sum of the counts
+     */
+    void add(int metric, double low, int lowRow, double high, int highRow, double rates, long counts) {
+        if (low < min[metric]) {
+            min[metric] = low;
+            minRow[metric] = lowRow;
+        }
+        if (high > max[metric]) {
+            max[metric] = high;
+            maxRow[metric] = highRow;
+        }
+        rateSum[metric] += rates;
+        countSum[metric] += counts;
+    }
+
+    /**
+     * getter method to get the first year of the range
+     * @return int first year
+     */
+    public int getFromYear() {
+        return fromYear;
+    }
+
+    /**
+     * getter method to get the last year of the range
+     * @return int last year
+     */
+    public int getToYear() {
+        return toYear;
+    }
+
+    /**
+     * getter method to get the number of rows in the range
+     * @return int number of rows
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * This method returns the lowest rate of a crime in the range
+     * @param metric crime
+     * @return double lowest rate, or positive infinity if the range has no rows
+     */
+    public double getMin(CrimeMetric metric) {
+        return min[metric.ordinal()];
+    }
+
+    /**
+     * This method returns the highest rate of a crime in the range
+     * @param metric crime
+     * @return double highest rate, or negative infinity if the range has no rows
+     */
+    public double getMax(CrimeMetric metric) {
+        return max[metric.ordinal()];
+    }
+
+    /**
+     * This method returns the row with the lowest rate of a crime, the earliest year wins a tie
+     * @param metric crime
+     * @return int row index or -1 if the range has no rows
+     */
+    public int getMinRow(CrimeMetric metric) {
+        return minRow[metric.ordinal()];
+    }
+
+    /**
+     * This method returns the row with the highest rate of a crime, the earliest year wins a tie
+     * @param metric crime
+     * @return int row index or -1 if the range has no rows
+     */
+    public int getMaxRow(CrimeMetric metric) {
+        return maxRow[metric.ordinal()];
+    }
+
+    /**
+     * This method returns the mean rate of a crime over the rows in the range
+     * @param metric crime
+     * @return double mean rate, or NaN if the range has no rows
+     */
+    public double getMean(CrimeMetric metric) {
+        return rows == 0 ? Double.NaN : rateSum[metric.ordinal()] / rows;
+    }
+
+    /**
+     * This method returns the total number of a crime in the range
+     * @param metric crime
+     * @return long sum of the counts
+     */
+    public long getSum(CrimeMetric metric) {
+        return countSum[metric.ordinal()];
+    }
+} // end class
@@ -0,0 +1,141 @@
+package crimestats;
+
+/**
+ * file:    RateSummary.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: RateSummary holds the lowest and highest value of every rate column and the rows where
+ * they were found. It is computed in one pass over the columns by CrimeColumns.summarizeRates, and
+ * after rows are appended a new summary is computed from the old one and only the new rows. Summaries
+ * of neighbouring ranges of rows can be combined, so large scans are split across threads.
+ */
+public class RateSummary {
+    // class fields, indexed by the slot of the rate column
+
+    private final double[] min = new double[CrimeColumn.RATE_COLUMNS];
+    private final double[] max = new double[CrimeColumn.RATE_COLUMNS];
+    private final int[] minRow = new int[CrimeColumn.RATE_COLUMNS];
+    private final int[] maxRow = new int[CrimeColumn.RATE_COLUMNS];
+    private final long version;
+    // number of rows the summary covers
+    private final int rows;
+
+    /**
+     * constructor creates an empty summary, every row is -1 until a value is added
+     * @param version version of the columns the summary is computed from
+     * @param rows number of rows that will be added
+     */
+    RateSummary(long version, int rows) {
+        this.version = version;
+        this.rows = rows;
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            min[c] = Double.POSITIVE_INFINITY;
+            max[c] = Double.NEGATIVE_INFINITY;
+            minRow[c] = -1;
+            maxRow[c] = -1;
+        }
+    }
+
+    /**
+     * constructor copies a summary of fewer rows so the rows appended since can be added
+     * @param previous summary of the first rows
+     * @param version version of the columns the summary is computed from
+     * @param rows number of rows covered once the new rows are added
+     */
+    RateSummary(RateSummary previous, long version, int rows) {
+        this.version = version;
+        this.rows = rows;
+        System.arraycopy(previous.min, 0, min, 0, CrimeColumn.RATE_COLUMNS);
+        System.arraycopy(previous.max, 0, max, 0, CrimeColumn.RATE_COLUMNS);
+        System.arraycopy(previous.minRow, 0, minRow, 0, CrimeColumn.RATE_COLUMNS);
+        System.arraycopy(previous.maxRow, 0, maxRow, 0, CrimeColumn.RATE_COLUMNS);
+    }
+
+    /**
+     * This method records the value of one rate column for one row, the first row wins a tie
+     * @param slot slot of the rate column
+     * @param row row index
+     * @param value rate in that row
+     */
+    void add(int slot, int row, double value) {
+        if (value < min[slot]) {
+            min[slot] = value;
+            minRow[slot] = row;
+        }
+        if (value > max[slot]) {
+            max[slot] = value;
+            maxRow[slot] = row;
+        }
+    }
+
+    /**
+     * This method combines the summary of later rows into this one, this summary wins a tie
+     * @param later summary of rows after the rows of this summary
+     * @return RateSummary this summary
+     */
+    RateSummary addAll(RateSummary later) {
+        for (int c = 0; c < CrimeColumn.RATE_COLUMNS; c++) {
+            if (later.min[c] < min[c]) {
+                min[c] = later.min[c];
+                minRow[c] = later.minRow[c];
+            }
+            if (later.max[c] > max[c]) {
+                max[c] = later.max[c];
+                maxRow[c] = later.maxRow[c];
+            }
+        }
+        return this;
+    } // end addAll
+
+    /**
+     * getter method to get the version of the columns the summary was computed from
+     * @return long version
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * getter method to get the number of rows the summary covers
+     * @return int number of rows
+     */
+    int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * This method returns the lowest value of a rate column
+     * @param column rate column
+     * @return double lowest rate, or positive infinity if there are no rows
+     */
+    public double getMin(CrimeColumn column) {
+        return min[column.getSlot()];
+    }
+
+    /**
+     * This method returns the highest value of a rate column
+     * @param column rate column
+     * @return double highest rate, or negative infinity if there are no rows
+     */
+    public double getMax(CrimeColumn column) {
+        return max[column.getSlot()];
+    }
+
+    /**
+     * This method returns the first row with the lowest value of a rate column
+     * @param column rate column
+     * @return int row index or -1 if there are no rows
+     */
+    public int getMinRow(CrimeColumn column) {
+        return minRow[column.getSlot()];
+    }
+
+    /**
+     * This method returns the first row with the highest value of a rate column
+     * @param column rate column
+     * @return int row index or -1 if there are no rows
+     */
+    public int getMaxRow(CrimeColumn column) {
+        return maxRow[column.getSlot()];
+    }
+} // end class
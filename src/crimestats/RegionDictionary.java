@@ -0,0 +1,157 @@
+package crimestats;
+
+import java.util.Arrays;
+
+/**
+ * file:    RegionDictionary.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: RegionDictionary gives each region name a small int code so CrimeColumns stores the region
+ * of a row as an int instead of a String. Codes are given in order of first appearance and code 0 is
+ * always the national region, used for rows of files without a region column. Names are found in an
+ * open addressing hash table, and the parser looks names up from its own char buffer so no String is
+ * created for a region that is already known.
+ */
+public class RegionDictionary {
+    // class fields
+
+    // name of the region of rows without a region column
+    public static final String NATIONAL = "National";
+
+    private String[] names = new String[16];
+    private int size = 0;
+    // hash table of code + 1 for each name, 0 is an empty slot, always at most half full
+    private int[] table = new int[32];
+
+    /**
+     * constructor creates a dictionary holding only the national region
+     */
+    public RegionDictionary() {
+        code(NATIONAL);
+    }
+
+    /**
+     * This method returns a copy of the dictionary that can have names added without changing this one,
+     * used when appended rows bring new regions while other threads read the columns
+     * @return RegionDictionary with the same codes
+     */
+    RegionDictionary copy() {
+        RegionDictionary copy = new RegionDictionary();
+        copy.names = names.clone();
+        copy.table = table.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * getter method to get the number of regions, including the national region
+     * @return int number of codes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method returns the name of a region
+     * @param code region code
+     * @return String name
+     */
+    public String getName(int code) {
+        return names[code];
+    }
+
+    /**
+     * This method finds the code of a region without adding it
+     * @param name region name, case sensitive
+     * @return int code, or -1 if the region is not in the dictionary
+     */
+    public int find(String name) {
+        int mask = table.length - 1;
+        for (int slot = name.hashCode() & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (names[table[slot] - 1].equals(name)) {
+                return table[slot] - 1;
+            }
+        }
+        return -1;
+    } // end find
+
+    /**
+     * This method returns the code of a region, adding it if it is new
+     * @param name region name
+     * @return int code
+     */
+    public int code(String name) {
+        int code = find(name);
+        return code >= 0 ? code : add(name, name.hashCode());
+    }
+
+    /**
+     * This method returns the code of a region whose name is the first characters of a buffer, adding
+     * it if it is new. The hash is the same as String.hashCode so both lookups find the same names.
+     * @param chars buffer holding the name
+     * @param length number of characters of the name
+     * @return int code
+     */
+    int code(char[] chars, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        int mask = table.length - 1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (matches(names[table[slot] - 1], chars, length)) {
+                return table[slot] - 1;
+            }
+        }
+        return add(new String(chars, 0, length), hash);
+    } // end code
+
+    /**
+     * This method adds a new name and returns its code, doubling the table when it is half full
+     */
+    private int add(String name, int hash) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = name;
+        size++;
+
+        if (size * 2 > table.length) {
+            table = new int[table.length * 2];
+            for (int code = 0; code < size; code++) {
+                insert(names[code].hashCode(), code);
+            }
+        } else {
+            insert(hash, size - 1);
+        }
+        return size - 1;
+    } // end add
+
+    /**
+     * This method puts a code in the first free slot for its hash
+     */
+    private void insert(int hash, int code) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = code + 1;
+    }
+
+    /**
+     * This method checks if a name is the same as the first characters of a buffer
+     */
+    private static boolean matches(String name, char[] chars, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+} // end class
@@ -3,8 +3,14 @@ package crimestats;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 
@@ -16,15 +22,44 @@ import java.util.Scanner;
  * of the program to read in the crime stats from csv file and store in an object array then
  * display a menu of multiple options for the user to select. Before exiting it will display
  * total runtime and an exit message.
+ *
+ * Batch mode runs CrimeQuery queries without the menu and writes the results to standard output as
+ * csv or json, with the loading messages on standard error. Queries are given with --query=query,
+ * which may be repeated, or --queries=file with one query per line, where blank lines and lines
+ * starting with # are skipped and - reads standard input. --format=csv or --format=json selects the
+ * output, csv is the default. A query that fails is reported in the output and the exit status is 1.
+ * With --watch the file is then followed with a CrimeTail and the queries are answered again each time
+ * rows are appended, --watch=path follows another file or a directory of drop files instead and
+ * --interval=ms sets how often to check, every second by default. --parallelism=n and
+ * --parallel-threshold=rows control how large queries are split across threads, see Parallelism, and
+ * --cache-size=n how many results the QueryCache keeps for the repeated queries of --watch. --jmx
+ * publishes the CrimeStatsMetrics to JMX and --metrics=file writes them as json on exit.
+ * --storage=compact packs the columns into EncodedColumns, --storage=off-heap keeps them in direct
+ * buffers and --storage=file reads them from the mapped snapshot of the file, see ColumnStorage, so
+ * it always creates file.snapshot next to the file even without --snapshot.
+ *
+ * usage: RunCrimeStats file [--ingest=mode] [--snapshot] [--storage=name] [--query=query ...] [--queries=file] [--format=csv|json]
+ *        [--watch[=path]] [--interval=ms] [--parallelism=n] [--parallel-threshold=rows] [--cache-size=n]
+ *        [--jmx] [--metrics=file]
  */
 public class RunCrimeStats {
 
+    // milliseconds between checks for appended rows in watch mode
+    private static final long DEFAULT_WATCH_INTERVAL = 1000;
+
     /**
      * Main method accepts 1 command line argument, instantiates CrimeStats class, calls
      * methods to process the file, displays the menu and tracks and displays total runtime.
      * @param args command line argument
      */
     public static void main(String[] args) {
+        // query options run the queries without the menu
+        for (String arg : args) {
+            if (arg.startsWith("--query=") || arg.startsWith("--queries=")) {
+                System.exit(runBatch(args));
+            }
+        }
+
         // first get the beginning time using Instant class
         Instant start = Instant.now();
 
@@ -44,9 +79,14 @@ public class RunCrimeStats {
 
             /*
             call method to perform the menu option entered and pass
-            the option number and the crime object
+            the option number and the crime object, a bad field found when a lazily read column is
+            first used is reported and the menu keeps running
             */
-            processMenuAction(option, crime);
+            try {
+                processMenuAction(option, crime);
+            } catch (CrimeDataFormatException badRow) {
+                System.err.println("Error in file " + args[0] + ": " + badRow.getMessage());
+            }
 
             /*
             call method to pause execution until user presses enter, allows user to view
@@ -67,6 +107,125 @@ public class RunCrimeStats {
 
     }// end main
 
+    /**
+     * This method runs the queries named by the command line arguments and writes the results, see the
+     * class comment for the options
+     * @param args command line arguments
+     * @return int exit status, 0 if every query succeeded
+     */
+    private static int runBatch(String[] args) {
+        QueryFormat format = QueryFormat.CSV;
+        List<String> texts = new ArrayList<>();
+        String watch = null;
+        long interval = DEFAULT_WATCH_INTERVAL;
+
+        // collect the queries in the order they were given
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--query=")) {
+                    texts.add(arg.substring("--query=".length()));
+                } else if (arg.startsWith("--queries=")) {
+                    readQueries(arg.substring("--queries=".length()), texts);
+                } else if (arg.startsWith("--format=")) {
+                    format = QueryFormat.fromName(arg.substring("--format=".length()));
+                } else if (arg.equals("--watch")) {
+                    watch = args[0];
+                } else if (arg.startsWith("--watch=")) {
+                    watch = arg.substring("--watch=".length());
+                } else if (arg.startsWith("--interval=")) {
+                    interval = Long.parseLong(arg.substring("--interval=".length()));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            System.err.println("Error reading queries: " + e.getMessage());
+            return 1;
+        }
+
+        // load the data once with the progress messages kept out of the results
+        CrimeStats crime = new CrimeStats(args, System.err);
+        int status = runQueries(crime, texts, format);
+        if (watch == null) {
+            return status;
+        }
+
+        // answer the queries again whenever rows are appended, until the program is stopped
+        Path watched = Paths.get(watch);
+        CrimeTail tail = new CrimeTail(crime, watched, watched.equals(Paths.get(args[0])));
+        try {
+            while (true) {
+                Thread.sleep(Math.max(interval, 1));
+                int appended = tail.poll();
+                if (appended > 0) {
+                    System.err.println("Appended " + appended + " rows from " + watch);
+                    runQueries(crime, texts, format);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error watching " + watch + ": " + e.getMessage());
+            return 1;
+        } catch (CrimeDataFormatException badRow) {
+            System.err.println("Error in file " + watch + ": " + badRow.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            return status;
+        }
+    } // end runBatch
+
+    /**
+     * This method runs the queries and writes their results to standard output, every query is
+     * answered from the same rows even if a CrimeTail appends rows meanwhile
+     * @return int exit status, 0 if every query succeeded
+     */
+    private static int runQueries(CrimeStats crime, List<String> texts, QueryFormat format) {
+        List<QueryResult> results = new ArrayList<>(texts.size());
+        CrimeStats data = crime.pin();
+        int status = 0;
+        for (String text : texts) {
+            QueryResult result;
+            try {
+                result = data.query(CrimeQuery.parse(text));
+            } catch (IllegalArgumentException e) {
+                result = QueryResult.failed(text, e.getMessage());
+            }
+            if (result.isError()) {
+                status = 1;
+            }
+            results.add(result);
+        }
+
+        AsciiWriter out = new AsciiWriter(System.out);
+        try {
+            format.write(results, out);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            return 1;
+        }
+        return status;
+    } // end runQueries
+
+    /**
+     * This method adds the queries in a file to the list, one per line, skipping blank lines and
+     * lines starting with #. The file - is standard input.
+     */
+    private static void readQueries(String file, List<String> texts) throws IOException {
+        BufferedReader reader = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+        try (reader) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String query = line.trim();
+                if (!query.isEmpty() && !query.startsWith("#")) {
+                    texts.add(query);
+                }
+            }
+        }
+    } // end readQueries
+
     /**
      * This method's only purpose is to pause the execution after displaying results to the
      * user before re-displaying the menu
@@ -105,209 +264,69 @@ public class RunCrimeStats {
      * @param crime CrimeStats object
      */
     private static void processMenuAction(char option, CrimeStats crime) {
-        /*
-        method variables
-        variables used for calculating the population changes between consecutive years
-        initialize year1 and pop1 to -1 as these 2 variables should never be negative
-        */
-
-        int year1 = -1;
-        int pop1 = -1;
-
-        // these will be assigned values before using
-        int year2;
-        int pop2;
-
         // switch statement to process user option
         switch (Character.toUpperCase(option)) {
             case 'A': // population changes between consecutive years
-                // length of array
-                int length = crime.getLength();
-
-                // use StringBuilder to build the output string in the for loop
-                StringBuilder s = new StringBuilder("Consecutive year population changes\n");
-
-                // iterate over array calculating population change between consecutive years and display results
-                for (int i = 1; i < length; i++) {
-                    // first iteration only set current object year and population to year1 and pop1
-                    if (year1 < 0) {
-                        year1 = crime.getCrimeArray()[i].getYear();
-                        pop1 = crime.getCrimeArray()[i].getPopulation();
-                      /*
-                      subsequent passes move year1 and pop1 to year2 and pop2, set current object year
-                      and poplulation to year1 and pop1, then calculate the change and display results
-                      */
-                    } else {
-                        year2 = year1;
-                        pop2 = pop1;
-                        year1 = crime.getCrimeArray()[i].getYear();
-                        pop1 = crime.getCrimeArray()[i].getPopulation();
-
-                        double change = (((pop1-pop2)/(double)pop2)*100);
-
-                        // append to StringBuilder for final display
-                        s.append("Between ");
-                        s.append(year2);
-                        s.append(" and ");
-                        s.append(year1);
-                        s.append(" there was a ");
-                        s.append(String.format("%.4f", change));
-                        s.append("% population change with a total increase of ");
-                        s.append((pop1-pop2));
-                        s.append("\n");
-
-                    } // end else
-
-                } // end for
-                System.out.println(s);
+                // stream the report to the console one line at a time
+                AsciiWriter out = new AsciiWriter(System.out);
+                try {
+                    crime.writeChanges(CrimeColumn.POPULATION, out);
+                    out.write('\n').flush();
+                } catch (IOException e) {
+                    System.err.println("Error writing output: " + e.getMessage());
+                }
                 break;
 
-            case 'B': // highest murder rate year
-                // get USCrimeStats object that corresponds with the maximum murder rate
-                USCrimeStats maxMurderRate = crime.getMaxRate("Murder");
-                System.out.println("The highest murder rate was " + maxMurderRate.getMurderRate() + " in "
-                        + maxMurderRate.getYear() + " with a total of " + maxMurderRate.getMurder() + " murders.");
-                break;
-
-
-
-            case 'C': // highest robbery rate year
-                // get USCrimeStats object that corresponds with the maximum robbery rate
-                USCrimeStats maxRobberyRate = crime.getMaxRate("Robbery");
-                System.out.println("The highest robbery rate was " + maxRobberyRate.getRobberyRate() + " in "
-                        + maxRobberyRate.getYear() + " with a total of " + maxRobberyRate.getRobbery() + " robberies.");
-                break;
-
-
-
-            case 'D': // highest violent crime year
-                // get USCrimeStats object that corresponds with the maximum violent crime rate
-                USCrimeStats maxVCrimeRate = crime.getMaxRate("Violent Crime");
-                System.out.println("The highest violent crime rate was " + maxVCrimeRate.getViolentCrimeRate() + " in "
-                        + maxVCrimeRate.getYear() + " with a total of " + maxVCrimeRate.getViolentCrime() + " violent crimes.");
-                break;
-
-            case 'E': // highest rape rate year
-                // get USCrimeStats object that corresponds with the maximum rape rate
-                USCrimeStats maxRapeRate = crime.getMaxRate("Rape");
-                System.out.println("The highest rape rate was " + maxRapeRate.getRapeRate() + " in "
-                        + maxRapeRate.getYear() + " with a total of " + maxRapeRate.getRape() + " rapes.");
-                break;
-
-            case 'F': // highest assault rate year
-                // get USCrimeStats object that corresponds with the maximum assault rate
-                USCrimeStats maxAssaultRate = crime.getMaxRate("Assault");
-                System.out.println("The highest assault rate was " + maxAssaultRate.getAssaultRate() + " in "
-                        + maxAssaultRate.getYear() + " with a total of " + maxAssaultRate.getAssault() + " assaults.");
-                break;
-
-            case 'G': // highest property crime rate year
-                // get USCrimeStats object that corresponds with the maximum property crime rate
-                USCrimeStats maxPropertyRate = crime.getMaxRate("Property Crime");
-                System.out.println("The highest property crime rate was " + maxPropertyRate.getRobberyRate() + " in "
-                        + maxPropertyRate.getYear() + " with a total of " + maxPropertyRate.getPropertyCrime()
-                        + " property crimes.");
-                break;
-
-            case 'H': // highest burglary rate year
-                // get USCrimeStats object that corresponds with the maximum burglary rate
-                USCrimeStats maxBurglaryRate = crime.getMaxRate("Burglary");
-                System.out.println("The highest burglary rate was " + maxBurglaryRate.getBurglaryRate() + " in "
-                        + maxBurglaryRate.getYear() + " with a total of " + maxBurglaryRate.getBurglary() + " assaults.");
-                break;
-
-            case 'I': // highest theft rate year
-                // get USCrimeStats object that corresponds with the maximum theft rate
-                USCrimeStats maxTheftRate = crime.getMaxRate("Theft");
-                System.out.println("The highest theft rate was " + maxTheftRate.getTheftRate() + " in "
-                        + maxTheftRate.getYear() + " with a total of " + maxTheftRate.getTheft() + " thefts.");
-                break;
-
-            case 'J': // highest vehicle theft rate year
-                // get USCrimeStats object that corresponds with the maximum vehicle theft rate
-                USCrimeStats maxVehicleRate = crime.getMaxRate("Vehicle");
-                System.out.println("The highest vehicle theft rate was " + maxVehicleRate.getVehicleTheftRate() + " in "
-                        + maxVehicleRate.getYear() + " with a total of " + maxVehicleRate.getVehicleTheft()
-                        + " vehicle thefts.");
-                break;
-
-            case 'K': // lowest murder rate year
-                // get USCrimeStats object that corresponds with the minimum murder rate
-                USCrimeStats minMurderRate = crime.getMinRate("Murder");
-                System.out.println("The lowest murder rate was " + minMurderRate.getMurderRate() + " in "
-                        + minMurderRate.getYear() + " with a total of " + minMurderRate.getMurder() + " murders.");
-                break;
-
-            case 'L': // lowest robbery rate year
-                // get USCrimeStats object that corresponds with the minimum robbery rate
-                USCrimeStats minRobberyRate = crime.getMinRate("Robbery");
-                System.out.println("The lowest robbery rate was " + minRobberyRate.getRobberyRate() + " in "
-                        + minRobberyRate.getYear() + " with a total of " + minRobberyRate.getRobbery() + " robberies.");
-                break;
-
-            case 'M': // lowest violent crime rate year
-                // get USCrimeStats object that corresponds with the minimum violent crime rate
-                USCrimeStats minVCrimeRate = crime.getMinRate("Violent Crime");
-                System.out.println("The lowest violent crime rate was " + minVCrimeRate.getViolentCrimeRate() + " in "
-                        + minVCrimeRate.getYear() + " with a total of " + minVCrimeRate.getViolentCrime()
-                        + " violent crimes.");
-                break;
-
-            case 'N': // lowest rape rate year
-                // get USCrimeStats object that corresponds with the minimum rape rate
-                USCrimeStats minRapeRate = crime.getMinRate("Rape");
-                System.out.println("The lowest rape rate was " + minRapeRate.getRapeRate() + " in "
-                        + minRapeRate.getYear() + " with a total of " + minRapeRate.getRape() + " rapes.");
-                break;
-
-            case 'O': // lowest assault rate year
-                // get USCrimeStats object that corresponds with the minimum assault rate
-                USCrimeStats minAssaultRate = crime.getMinRate("Assault");
-                System.out.println("The lowest assault rate was " + minAssaultRate.getAssaultRate() + " in "
-                        + minAssaultRate.getYear() + " with a total of " + minAssaultRate.getAssault () + " assaults.");
-                break;
-
-            case 'P': // lowest property crime rate year
-                // get USCrimeStats object that corresponds with the minimum property crime rate
-                USCrimeStats minPropertyRate = crime.getMinRate("Property Crime");
-                System.out.println("The lowest property crime rate was " + minPropertyRate.getPropertyCrimeRate() + " in "
-                        + minPropertyRate.getYear() + " with a total of " + minPropertyRate.getPropertyCrime ()
-                        + " property crimes.");
-                break;
-
-            case 'R': // lowest burglary rate year
-                // get USCrimeStats object that corresponds with the minimum burglary rate
-                USCrimeStats minBurglaryRate = crime.getMinRate("Burglary");
-                System.out.println("The lowest burglary rate was " + minBurglaryRate.getBurglaryRate() + " in "
-                        + minBurglaryRate.getYear() + " with a total of " + minBurglaryRate.getBurglary ()
-                        + " burglaries.");
-                break;
-
-            case 'S': // lowest theft rate year
-                // get USCrimeStats object that corresponds with the minimum theft rate
-                USCrimeStats minTheftRate = crime.getMinRate("Theft");
-                System.out.println("The lowest theft rate was " + minTheftRate.getTheftRate() + " in "
-                        + minTheftRate.getYear() + " with a total of " + minTheftRate.getTheft () + " thefts.");
-                break;
-
-            case 'T': // lowest vehicle theft rate year
-                // get USCrimeStats object that corresponds with the minimum vehicle theft rate
-                USCrimeStats minVehicleRate = crime.getMinRate("Vehicle");
-                System.out.println("The lowest vehicle theft rate was " + minVehicleRate.getVehicleTheftRate() + " in "
-                        + minVehicleRate.getYear() + " with a total of " + minVehicleRate.getVehicleTheft ()
-                        + " vehicle thefts.");
+            case CrimeQuery.MEDIAN_OPTION: // estimated median rate of every crime
+                if (crime.getColumns().size() == 0) {
+                    System.out.println("There is no data to estimate from");
+                    break;
+                }
+                for (CrimeMetric metric : CrimeMetric.values()) {
+                    System.out.println("The estimated median " + metric.getDisplayName() + " rate is "
+                            + crime.getApproxPercentile(metric, 50));
+                }
                 break;
 
             case 'Q': // quit
                 break;
 
-            default: // invalid option selected
-                System.out.println("Invalid option selected");
-                System.out.println("Please Select a valid menu option");
+            default: // highest or lowest rate year, or invalid option selected
+                int highest = CrimeQuery.HIGHEST_OPTIONS.indexOf(Character.toUpperCase(option));
+                int lowest = CrimeQuery.LOWEST_OPTIONS.indexOf(Character.toUpperCase(option));
+
+                if (highest >= 0) {
+                    // get USCrimeStats object that corresponds with the maximum rate of the crime
+                    CrimeMetric metric = CrimeQuery.MENU_METRICS[highest];
+                    displayRate("highest", metric, crime.getMaxRate(metric));
+                } else if (lowest >= 0) {
+                    // get USCrimeStats object that corresponds with the minimum rate of the crime
+                    CrimeMetric metric = CrimeQuery.MENU_METRICS[lowest];
+                    displayRate("lowest", metric, crime.getMinRate(metric));
+                } else {
+                    System.out.println("Invalid option selected");
+                    System.out.println("Please Select a valid menu option");
+                }
                 break;
         } // end switch
     } // end processMenuAction
 
+    /**
+     * This method displays the year with the highest or lowest rate of a crime
+     * @param extreme "highest" or "lowest"
+     * @param metric crime that was looked up
+     * @param row USCrimeStats object for the year, or null if there is no data
+     */
+    private static void displayRate(String extreme, CrimeMetric metric, USCrimeStats row) {
+        if (row != null) {
+            // name the region of regional rows, national rows only have a year
+            String region = RegionDictionary.NATIONAL.equals(row.getRegion()) ? "" : " in " + row.getRegion();
+            System.out.println("The " + extreme + " " + metric.getDisplayName() + " rate was " + row.getRate(metric)
+                    + " in " + row.getYear() + region + " with a total of " + row.getCount(metric) + " "
+                    + metric.getPluralName() + ".");
+        }
+    } // end displayRate
+
     /**
      * This method displays the welcome message
      */
@@ -366,6 +385,10 @@ public class RunCrimeStats {
         System.out.println("S.\tWhat year was the theft rate the lowest?");
         System.out.println("T.\tWhat year was the vehicle theft rate the lowest?");
         System.out.println();
+        System.out.println("**********\tESTIMATED STATISTICS\t**********");
+        System.out.println();
+        System.out.println("U.\tWhat is the estimated median rate of each crime?");
+        System.out.println();
         System.out.println("Q.\tQuit");
         System.out.println();
         System.out.println("Enter your selection: ");
@@ -4,156 +4,149 @@ package crimestats;
  * file:    USCrimeStats.java
  * author:  Michael DeAngelo
  * date:    February 28, 2018
- * purpose: USCrimeStats class contains the data for the US Crime Stats
- * now testing changes
+ * purpose: USCrimeStats class contains the data for the US Crime Stats. Each object is a view of one
+ * row of a CrimeColumns store.
  */
 
 public class USCrimeStats {
     // class fields
 
-    private int year;
-    private int population;
-    private int violentCrime;
-    private double violentCrimeRate;
-    private int murder;
-    private double murderRate;
-    private int rape;
-    private double rapeRate;
-    private int robbery;
-    private double robberyRate;
-    private int assault;
-    private double assaultRate;
-    private int propertyCrime;
-    private double propertyCrimeRate;
-    private int burglary;
-    private double burglaryRate;
-    private int theft;
-    private double theftRate;
-    private int vehicleTheft;
-    private double vehicleTheftRate;
+    // columns holding the data and the row of this object within them
+    private final CrimeColumns columns;
+    private final int row;
 
     /**
      * constructor takes String argument containing crime data
-     * and splits it into class fields.
+     * and parses it into a single row of columns.
      * @param data String containing one row of a csv file
      */
     public USCrimeStats(String data){
-        // split String data into array
-        String[] crimeArray = data.split(",");
-
-        // call method to set set class fields from array
-        parseArray(crimeArray);
+        // parse the String into a new set of columns holding just this row
+        this(parseRow(data), 0);
+    }
 
+    /**
+     * constructor creates a view of one row of columns that are already loaded, no data is copied
+     * @param columns columns holding the data
+     * @param row row index within the columns
+     */
+    USCrimeStats(CrimeColumns columns, int row) {
+        this.columns = columns;
+        this.row = row;
     }
 
     // getter methods
 
+    public String getRegion() {
+        return columns.getRegionName(row);
+    }
+
     public int getYear() {
-        return year;
+        return columns.getInt(CrimeColumn.YEAR, row);
     }
 
     public int getPopulation() {
-        return population;
+        return columns.getInt(CrimeColumn.POPULATION, row);
     }
 
     public int getViolentCrime() {
-        return violentCrime;
+        return columns.getInt(CrimeColumn.VIOLENT_CRIME, row);
     }
 
     public double getViolentCrimeRate() {
-        return violentCrimeRate;
+        return columns.getRate(CrimeColumn.VIOLENT_CRIME_RATE, row);
     }
 
     public int getMurder() {
-        return murder;
+        return columns.getInt(CrimeColumn.MURDER, row);
     }
 
     public double getMurderRate() {
-        return murderRate;
+        return columns.getRate(CrimeColumn.MURDER_RATE, row);
     }
 
     public int getRape() {
-        return rape;
+        return columns.getInt(CrimeColumn.RAPE, row);
     }
 
     public double getRapeRate() {
-        return rapeRate;
+        return columns.getRate(CrimeColumn.RAPE_RATE, row);
     }
 
     public int getRobbery() {
-        return robbery;
+        return columns.getInt(CrimeColumn.ROBBERY, row);
     }
 
     public double getRobberyRate() {
-        return robberyRate;
+        return columns.getRate(CrimeColumn.ROBBERY_RATE, row);
     }
 
     public int getAssault() {
-        return assault;
+        return columns.getInt(CrimeColumn.ASSAULT, row);
     }
 
     public double getAssaultRate() {
-        return assaultRate;
+        return columns.getRate(CrimeColumn.ASSAULT_RATE, row);
     }
 
     public int getPropertyCrime() {
-        return propertyCrime;
+        return columns.getInt(CrimeColumn.PROPERTY_CRIME, row);
     }
 
     public double getPropertyCrimeRate() {
-        return propertyCrimeRate;
+        return columns.getRate(CrimeColumn.PROPERTY_CRIME_RATE, row);
     }
 
     public int getBurglary() {
-        return burglary;
+        return columns.getInt(CrimeColumn.BURGLARY, row);
     }
 
     public double getBurglaryRate() {
-        return burglaryRate;
+        return columns.getRate(CrimeColumn.BURGLARY_RATE, row);
     }
 
     public int getTheft() {
-        return theft;
+        return columns.getInt(CrimeColumn.THEFT, row);
     }
 
     public double getTheftRate() {
-        return theftRate;
+        return columns.getRate(CrimeColumn.THEFT_RATE, row);
     }
 
     public int getVehicleTheft() {
-        return vehicleTheft;
+        return columns.getInt(CrimeColumn.VEHICLE_THEFT, row);
     }
 
     public double getVehicleTheftRate() {
-        return vehicleTheftRate;
+        return columns.getRate(CrimeColumn.VEHICLE_THEFT_RATE, row);
+    }
+
+    /**
+     * This method returns the number of crimes of one type
+     * @param metric crime to look up
+     * @return int number of crimes
+     */
+    public int getCount(CrimeMetric metric) {
+        return columns.getInt(metric.getCountColumn(), row);
+    }
+
+    /**
+     * This method returns the rate per 100,000 people of one type of crime
+     * @param metric crime to look up
+     * @return double rate
+     */
+    public double getRate(CrimeMetric metric) {
+        return columns.getRate(metric.getRateColumn(), row);
     }
 
     /**
-     * parseArray method assigns crime data from array (from crime data file)
-     * to class fields for further processing
-     * @param crimeArray array of crime data
+     * This method parses one row of the csv file into a new set of columns
+     * @param data String containing one row of a csv file
+     * @return CrimeColumns holding the single row
      */
-    private void parseArray(String[] crimeArray) {
-        this.year = Integer.parseInt(crimeArray[0]);
-        this.population = Integer.parseInt(crimeArray[1]);
-        this.violentCrime = Integer.parseInt(crimeArray[2]);
-        this.violentCrimeRate = Double.parseDouble(crimeArray[3]);
-        this.murder = Integer.parseInt(crimeArray[4]);
-        this.murderRate = Double.parseDouble(crimeArray[5]);
-        this.rape = Integer.parseInt(crimeArray[6]);
-        this.rapeRate = Double.parseDouble(crimeArray[7]);
-        this.robbery = Integer.parseInt(crimeArray[8]);
-        this.robberyRate = Double.parseDouble(crimeArray[9]);
-        this.assault = Integer.parseInt(crimeArray[10]);
-        this.assaultRate = Double.parseDouble(crimeArray[11]);
-        this.propertyCrime = Integer.parseInt(crimeArray[12]);
-        this.propertyCrimeRate = Double.parseDouble(crimeArray[13]);
-        this.burglary = Integer.parseInt(crimeArray[14]);
-        this.burglaryRate = Double.parseDouble(crimeArray[15]);
-        this.theft = Integer.parseInt(crimeArray[16]);
-        this.theftRate = Double.parseDouble(crimeArray[17]);
-        this.vehicleTheft = Integer.parseInt(crimeArray[18]);
-        this.vehicleTheftRate = Double.parseDouble(crimeArray[19]);
-
-    } // end parseArray
+    private static CrimeColumns parseRow(String data) {
+        CrimeColumns row = new CrimeColumns(1);
+        new CrimeCsvParser().parse(data, 1, row);
+        return row;
+    }
 } // end class
@@ -0,0 +1,430 @@
+package crimestats;
+
+import java.util.Arrays;
+
+/**
+ * file:    YearIndex.java
+ * author:  Michael DeAngelo
+ * date:    October 17, 2026
+ * purpose: YearIndex finds rows by year without scanning the columns. It keeps the distinct years in a
+ * sorted int array and, for each year, the range of its rows in a list of rows ordered by year. When
+ * the file is already in year order, as Crime.csv and generated files are, the rows of each year are
+ * consecutive and no list is kept.
+ *
+ * For every crime the index also keeps prefix sums of the rates and counts by year and sparse tables
+ * of the years with the lowest and highest rate, where level j holds the answer for the 2^j years
+ * starting at each year. The total, mean, lowest and highest rate over any range of years are then
+ * found in constant time, the lowest and highest from two overlapping power of two ranges.
+ */
+public class YearIndex {
+    // class fields
+
+    private static final int METRICS = CrimeMetric.values().length;
+
+    private final long version;
+    // distinct years in ascending order
+    private final int[] years;
+    // rows of years[k] are order[start[k]] to order[start[k + 1] - 1], order is null when it would be 0, 1, 2 ...
+    private final int[] start;
+    private final int[] order;
+
+    // lowest and highest rate of every crime in every year and their rows, indexed [metric ordinal][year index]
+    private final double[][] minRate;
+    private final double[][] maxRate;
+    private final int[][] minRow;
+    private final int[][] maxRow;
+    // sums of the rates and counts of every crime in the years before each year index, count + 1 entries
+    private final double[][] ratePrefix;
+    private final long[][] countPrefix;
+    // year index of the lowest and highest rate in the 2^level years from each year, [metric][level][year index]
+    private final int[][][] minTable;
+    private final int[][][] maxTable;
+
+    /**
+     * constructor builds the index of the current rows of the columns
+     * @param columns columns to index
+     */
+    public YearIndex(CrimeColumns columns) {
+        this(columns, null);
+    }
+
+    /**
+     * constructor builds the index of the columns, reusing the summaries of an index of the first rows
+     * when previous is not null. The rows appended since previous was built must be in year order and
+     * start no earlier than its last year.
+     */
+    private YearIndex(CrimeColumns columns, YearIndex previous) {
+        this.version = columns.getVersion();
+        int size = columns.size();
+        int firstRow = previous == null ? 0 : previous.start[previous.years.length];
+        // the columns are read a block at a time so compact and off heap columns are not copied whole
+        int blockRows = Math.min(size, CrimeColumns.BLOCK_ROWS);
+        int[] yearBlock = new int[blockRows];
+
+        // sort the rows by year only if they are out of order, keeping file order within a year
+        boolean sorted = true;
+        int lastYear = Integer.MIN_VALUE;
+        for (int from = Math.max(firstRow - 1, 0); from < size && sorted; from += blockRows) {
+            int length = Math.min(blockRows, size - from);
+            columns.readInts(CrimeColumn.YEAR, from, length, yearBlock);
+            for (int i = 0; i < length && sorted; i++) {
+                sorted = lastYear <= yearBlock[i];
+                lastYear = yearBlock[i];
+            }
+        }
+        int[] rowOrder = null;
+        // year and row of each row in year order, only when the rows are sorted here
+        long[] keys = null;
+        if (!sorted) {
+            // rows out of order are indexed from the start
+            previous = null;
+            firstRow = 0;
+            keys = new long[size];
+            for (int from = 0; from < size; from += blockRows) {
+                int length = Math.min(blockRows, size - from);
+                columns.readInts(CrimeColumn.YEAR, from, length, yearBlock);
+                for (int i = 0; i < length; i++) {
+                    keys[from + i] = ((long) yearBlock[i] << 32) | (from + i);
+                }
+            }
+            Arrays.sort(keys);
+            rowOrder = new int[size];
+            for (int i = 0; i < size; i++) {
+                rowOrder[i] = (int) keys[i];
+            }
+        }
+        this.order = rowOrder;
+
+        // find where each year starts, after the years already in the previous index
+        int count = previous == null ? 0 : previous.years.length;
+        int[] distinct = new int[count + Math.max(size - firstRow, 1)];
+        int[] starts = new int[count + size - firstRow + 1];
+        if (previous != null) {
+            System.arraycopy(previous.years, 0, distinct, 0, count);
+            System.arraycopy(previous.start, 0, starts, 0, count);
+        }
+        for (int from = firstRow; from < size; from += blockRows) {
+            int length = Math.min(blockRows, size - from);
+            if (keys == null) {
+                columns.readInts(CrimeColumn.YEAR, from, length, yearBlock);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    yearBlock[i] = (int) (keys[from + i] >> 32);
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                int year = yearBlock[i];
+                if (count == 0 || distinct[count - 1] != year) {
+                    distinct[count] = year;
+                    starts[count] = from + i;
+                    count++;
+                }
+            }
+        }
+        starts[count] = size;
+        this.years = Arrays.copyOf(distinct, count);
+        this.start = Arrays.copyOf(starts, count + 1);
+
+        // the last year of the previous index gets rows appended to it, so it is summarized again
+        int firstYear = 0;
+        if (previous != null) {
+            int previousCount = previous.years.length;
+            firstYear = previousCount > 0 && size > firstRow
+                    && columns.getInt(CrimeColumn.YEAR, firstRow) == previous.years[previousCount - 1]
+                    ? previousCount - 1 : previousCount;
+        }
+
+        // year index of each row when the rows were sorted here, otherwise the rows of a year are
+        // consecutive and the year is found by moving past the start of the next one
+        int[] yearOfRow = null;
+        if (rowOrder != null) {
+            yearOfRow = new int[size];
+            for (int k = 0; k < count; k++) {
+                for (int i = start[k]; i < start[k + 1]; i++) {
+                    yearOfRow[rowOrder[i]] = k;
+                }
+            }
+        }
+
+        this.minRate = new double[METRICS][];
+        this.maxRate = new double[METRICS][];
+        this.minRow = new int[METRICS][];
+        this.maxRow = new int[METRICS][];
+        this.ratePrefix = new double[METRICS][];
+        this.countPrefix = new long[METRICS][];
+        this.minTable = new int[METRICS][][];
+        this.maxTable = new int[METRICS][][];
+
+        // summarize one crime at a time so each pass reads two columns in order, a row of a year at a
+        // time in row order, which is also file order within a year
+        double[] rateBlock = new double[blockRows];
+        int[] countBlock = new int[blockRows];
+        for (CrimeMetric metric : CrimeMetric.values()) {
+            int m = metric.ordinal();
+
+            if (previous == null) {
+                minRate[m] = new double[count];
+                maxRate[m] = new double[count];
+                minRow[m] = new int[count];
+                maxRow[m] = new int[count];
+                ratePrefix[m] = new double[count + 1];
+                countPrefix[m] = new long[count + 1];
+            } else {
+                minRate[m] = Arrays.copyOf(previous.minRate[m], count);
+                maxRate[m] = Arrays.copyOf(previous.maxRate[m], count);
+                minRow[m] = Arrays.copyOf(previous.minRow[m], count);
+                maxRow[m] = Arrays.copyOf(previous.maxRow[m], count);
+                ratePrefix[m] = Arrays.copyOf(previous.ratePrefix[m], count + 1);
+                countPrefix[m] = Arrays.copyOf(previous.countPrefix[m], count + 1);
+            }
+
+            double[] low = minRate[m];
+            double[] high = maxRate[m];
+            int[] lowRow = minRow[m];
+            int[] highRow = maxRow[m];
+            double[] rateTotal = new double[count];
+            long[] countTotal = new long[count];
+            for (int k = firstYear; k < count; k++) {
+                low[k] = Double.POSITIVE_INFINITY;
+                high[k] = Double.NEGATIVE_INFINITY;
+                lowRow[k] = -1;
+                highRow[k] = -1;
+            }
+
+            int k = firstYear;
+            for (int from = start[firstYear]; from < size; from += blockRows) {
+                int length = Math.min(blockRows, size - from);
+                columns.readRates(metric.getRateColumn(), from, length, rateBlock);
+                columns.readInts(metric.getCountColumn(), from, length, countBlock);
+                for (int i = 0; i < length; i++) {
+                    int r = from + i;
+                    if (yearOfRow != null) {
+                        k = yearOfRow[r];
+                    } else {
+                        while (start[k + 1] <= r) {
+                            k++;
+                        }
+                    }
+                    double rate = rateBlock[i];
+                    if (rate < low[k]) {
+                        low[k] = rate;
+                        lowRow[k] = r;
+                    }
+                    if (rate > high[k]) {
+                        high[k] = rate;
+                        highRow[k] = r;
+                    }
+                    rateTotal[k] += rate;
+                    countTotal[k] += countBlock[i];
+                }
+            }
+
+            for (int y = firstYear; y < count; y++) {
+                ratePrefix[m][y + 1] = ratePrefix[m][y] + rateTotal[y];
+                countPrefix[m][y + 1] = countPrefix[m][y] + countTotal[y];
+            }
+
+            // the tables cover the years, not the rows, so they are cheap to build again
+            minTable[m] = sparseTable(minRate[m], false);
+            maxTable[m] = sparseTable(maxRate[m], true);
+        }
+    } // end constructor
+
+    /**
+     * This method returns an index of the columns after rows were appended to them. When the new rows
+     * continue the year order of the rows before them only the years they add to are summarized again,
+     * otherwise the index is built from the start.
+     * @param columns the columns this index was built from, with rows appended
+     * @return YearIndex of the current rows
+     */
+    YearIndex extend(CrimeColumns columns) {
+        int firstRow = start[years.length];
+        if (order != null || firstRow > columns.size() || (years.length > 0 && firstRow < columns.size()
+                && columns.getInt(CrimeColumn.YEAR, firstRow) < years[years.length - 1])) {
+            return new YearIndex(columns);
+        }
+        return new YearIndex(columns, this);
+    } // end extend
+
+    /**
+     * This method builds a sparse table of the positions of the lowest or highest values. Level 0 is
+     * every position, level j combines two ranges of level j - 1, the earlier position wins a tie.
+     */
+    private static int[][] sparseTable(double[] values, boolean highest) {
+        int count = values.length;
+        int levels = count == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(count);
+        int[][] table = new int[levels][];
+
+        table[0] = new int[count];
+        for (int k = 0; k < count; k++) {
+            table[0][k] = k;
+        }
+        for (int j = 1; j < levels; j++) {
+            int half = 1 << (j - 1);
+            table[j] = new int[count - (1 << j) + 1];
+            for (int k = 0; k < table[j].length; k++) {
+                table[j][k] = better(values, table[j - 1][k], table[j - 1][k + half], highest);
+            }
+        }
+        return table;
+    } // end sparseTable
+
+    /**
+     * This method returns the position of the lower or higher value, the first position on a tie
+     */
+    private static int better(double[] values, int first, int second, boolean highest) {
+        if (highest) {
+            return values[second] > values[first] ? second : first;
+        }
+        return values[second] < values[first] ? second : first;
+    }
+
+    /**
+     * This method finds the year index of the lowest or highest value from year index first to last
+     * with two overlapping lookups in the sparse table
+     */
+    private static int query(int[][] table, double[] values, int first, int last, boolean highest) {
+        int level = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+        return better(values, table[level][first], table[level][last - (1 << level) + 1], highest);
+    }
+
+    /**
+     * getter method to get the version of the columns the index was built from
+     * @return long version
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * getter method to get the number of distinct years
+     * @return int number of years
+     */
+    public int getYearCount() {
+        return years.length;
+    }
+
+    /**
+     * This method returns the rows of one year in file order
+     * @param year year to find
+     * @return int array of row indexes, empty if the year has no rows
+     */
+    public int[] rows(int year) {
+        int k = Arrays.binarySearch(years, year);
+        return k < 0 ? new int[0] : rowsOfIndexes(k, k);
+    }
+
+    /**
+     * This method returns the rows from one year to another in year order
+     * @param fromYear first year, inclusive
+     * @param toYear last year, inclusive
+     * @return int array of row indexes, empty if no year is in the range
+     */
+    public int[] rows(int fromYear, int toYear) {
+        int first = firstAtLeast(fromYear);
+        int last = firstAtLeast(toYear + 1L) - 1;
+        return first > last ? new int[0] : rowsOfIndexes(first, last);
+    }
+
+    /**
+     * This method finds the row with the highest rate of a crime from one year to another
+     * @param metric crime
+     * @param fromYear first year, inclusive
+     * @param toYear last year, inclusive
+     * @return int row index, the earliest year wins a tie, or -1 if no year is in the range
+     */
+    public int maxRow(CrimeMetric metric, int fromYear, int toYear) {
+        int first = firstAtLeast(fromYear);
+        int last = firstAtLeast(toYear + 1L) - 1;
+        int m = metric.ordinal();
+        return first > last ? -1 : maxRow[m][query(maxTable[m], maxRate[m], first, last, true)];
+    }
+
+    /**
+     * This method finds the row with the lowest rate of a crime from one year to another
+     * @param metric crime
+     * @param fromYear first year, inclusive
+     * @param toYear last year, inclusive
+     * @return int row index, the earliest year wins a tie, or -1 if no year is in the range
+     */
+    public int minRow(CrimeMetric metric, int fromYear, int toYear) {
+        int first = firstAtLeast(fromYear);
+        int last = firstAtLeast(toYear + 1L) - 1;
+        int m = metric.ordinal();
+        return first > last ? -1 : minRow[m][query(minTable[m], minRate[m], first, last, false)];
+    }
+
+    /**
+     * This method returns the total count of a crime from one year to another
+     * @param metric crime
+     * @param fromYear first year, inclusive
+     * @param toYear last year, inclusive
+     * @return long sum of the counts, 0 if no year is in the range
+     */
+    public long total(CrimeMetric metric, int fromYear, int toYear) {
+        int first = firstAtLeast(fromYear);
+        int after = firstAtLeast(toYear + 1L);
+        long[] prefix = countPrefix[metric.ordinal()];
+        return first >= after ? 0 : prefix[after] - prefix[first];
+    }
+
+    /**
+     * This method returns the statistics of every crime from one year to another
+     * @param fromYear first year, inclusive
+     * @param toYear last year, inclusive
+     * @return RangeStats of the rows in the range
+     */
+    public RangeStats rangeStats(int fromYear, int toYear) {
+        RangeStats stats = new RangeStats(fromYear, toYear);
+        int first = firstAtLeast(fromYear);
+        int last = firstAtLeast(toYear + 1L) - 1;
+        if (first > last) {
+            return stats;
+        }
+
+        stats.addRows(start[last + 1] - start[first]);
+        for (int m = 0; m < METRICS; m++) {
+            int low = query(minTable[m], minRate[m], first, last, false);
+            int high = query(maxTable[m], maxRate[m], first, last, true);
+            stats.add(m, minRate[m][low], minRow[m][low], maxRate[m][high], maxRow[m][high],
+                    ratePrefix[m][last + 1] - ratePrefix[m][first],
+                    countPrefix[m][last + 1] - countPrefix[m][first]);
+        }
+        return stats;
+    } // end rangeStats
+
+    /**
+     * This method returns the index of the first year that is not before a year
+     */
+    private int firstAtLeast(long year) {
+        int low = 0;
+        int high = years.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (years[mid] < year) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * This method returns the rows of the years at indexes first to last
+     */
+    private int[] rowsOfIndexes(int first, int last) {
+        int[] rows = new int[start[last + 1] - start[first]];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = row(start[first] + i);
+        }
+        return rows;
+    }
+
+    /**
+     * This method returns the row at a position in year order
+     */
+    private int row(int position) {
+        return order == null ? position : order[position];
+    }
+} // end class